@@ -25,30 +25,49 @@ package WFS;
 
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public final class WebFileAttributes implements BasicFileAttributes {
 
-	private boolean file;
-	private long size;
-	private FileTime time;
+	private final WebFileColumns cols;
+	private final int slot;
 
 	public WebFileAttributes(
 		final boolean file,
 		final long size,
 		final FileTime time
 	) {
+		this(new WebFileColumns(1), 0);
 		flash(file, size, time);
 	}
 
-	@Override public boolean isRegularFile() { return file; }
-	@Override public boolean isDirectory() { return !file; }
+	// A view on one slot of a listing's columns
+	WebFileAttributes(
+		final WebFileColumns cols,
+		final int slot
+	) {
+		this.cols = cols;
+		this.slot = slot;
+	}
+
+	@Override public boolean isRegularFile() { return cols.file(slot); }
+	@Override public boolean isDirectory() { return !cols.file(slot); }
 	@Override public boolean isSymbolicLink() { return false; }
 	@Override public boolean isOther() { return false; }
 
-	@Override public long size() { return size; }
+	@Override public long size() { return cols.size(slot); }
+
+	@Override public FileTime lastModifiedTime() {
+		final int nano = cols.nano(slot);
+
+		return nano == 0
+			? FileTime.from(cols.secs(slot), TimeUnit.SECONDS)
+			: FileTime.from(Instant.ofEpochSecond(cols.secs(slot), nano));
+	}
 
-	@Override public FileTime lastModifiedTime() { return time; }
 	@Override public FileTime lastAccessTime() { return null; }
 	@Override public FileTime creationTime() { return null; }
 
@@ -57,19 +76,53 @@ public final class WebFileAttributes implements BasicFileAttributes {
 	//
 
 	void flash(final boolean file, final long size, final FileTime time) {
-		this.file = file;
-		this.size = size;
-		this.time = time;
+		final Instant when = time.toInstant();
+		cols.put(slot, file, size, when.getEpochSecond(), when.getNano());
+	}
+
+	void flash(final boolean file, final long size, final long secs, final int nano) {
+		cols.put(slot, file, size, secs, nano);
 	}
 
-	Map<String, Object> toMap() {
-		return Map.of(
-			"isRegularFile",    isRegularFile(),
-			"isDirectory",      isDirectory(),
-			"isSymbolicLink",   isSymbolicLink(),
-			"isOther",          isOther(),
-			"size",             size(),
-			"lastModifiedTime", lastModifiedTime());
+	// Only what was asked for, as readAttributes(path, "basic:size,...") expects
+	Map<String, Object> toMap(final String spec) {
+		final int colon = spec.indexOf(':');
+
+		if (colon >= 0 && !(colon == 5 && spec.startsWith("basic"))) {
+			throw new UnsupportedOperationException(spec.substring(0, colon));
+		}
+
+		final Map<String, Object> map = new HashMap<>(8);
+
+		for (int from = colon + 1, till; from <= spec.length(); from = till + 1) {
+			till = spec.indexOf(',', from);
+			if (till < 0) till = spec.length();
+
+			final String attr = spec.substring(from, till);
+
+			switch (attr) {
+				case "*":
+					map.put("isRegularFile", isRegularFile());
+					map.put("isDirectory", isDirectory());
+					map.put("isSymbolicLink", isSymbolicLink());
+					map.put("isOther", isOther());
+					map.put("size", size());
+					map.put("lastModifiedTime", lastModifiedTime());
+					break;
+				case "isRegularFile": map.put(attr, isRegularFile()); break;
+				case "isDirectory": map.put(attr, isDirectory()); break;
+				case "isSymbolicLink": map.put(attr, isSymbolicLink()); break;
+				case "isOther": map.put(attr, isOther()); break;
+				case "size": map.put(attr, size()); break;
+				case "lastModifiedTime": map.put(attr, lastModifiedTime()); break;
+				case "lastAccessTime": map.put(attr, lastAccessTime()); break;
+				case "creationTime": map.put(attr, creationTime()); break;
+				case "fileKey": map.put(attr, fileKey()); break;
+				default: throw new IllegalArgumentException(attr);
+			}
+		}
+
+		return map;
 	}
 
 }
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+final class WebFileCache {
+
+	private final long room;
+	private final int unit;
+
+	// Each block carries the stamp it was cut under, so nothing outlives its eviction
+	private final LinkedHashMap<Block, Chunk> lru = new LinkedHashMap<>(256, 0.75f, true);
+	private long used;
+
+	WebFileCache(
+		final long room,
+		final int unit
+	) {
+		this.room = room;
+		this.unit = unit;
+	}
+
+	InputStream open(
+		final URI link,
+		final String stamp,
+		final long size,
+		final WebFilePool.Fetch origin
+	) throws IOException {
+		if (size > room || size < 0) {
+			return origin.open();
+		}
+
+		final List<byte[]> hits = find(link, stamp, size);
+
+		if (hits != null) {
+			final List<InputStream> list = new ArrayList<>(hits.size());
+			for (final byte[] hit : hits) list.add(new ByteArrayInputStream(hit));
+			return new SequenceInputStream(Collections.enumeration(list));
+		}
+
+		return new Tee(link, stamp, size, origin.open());
+	}
+
+	private synchronized List<byte[]> find(final URI link, final String stamp, final long size) {
+		final int count = (int)((size + unit - 1) / unit);
+		final List<byte[]> hits = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			final Chunk hit = lru.get(new Block(link, i));
+
+			if (hit == null) {
+				return null;
+			}
+
+			// The listing moved on since this block was cut
+			if (!stamp.equals(hit.stamp)) {
+				purge(link);
+				return null;
+			}
+
+			hits.add(hit.data);
+		}
+
+		return hits;
+	}
+
+	private synchronized void store(final URI link, final String stamp, final int index, final byte[] data) {
+		final Chunk prev = lru.put(new Block(link, index), new Chunk(stamp, data));
+		used += data.length - (prev == null ? 0 : prev.data.length);
+
+		for (final Iterator<Chunk> it = lru.values().iterator(); used > room && it.hasNext(); ) {
+			used -= it.next().data.length;
+			it.remove();
+		}
+	}
+
+	private void purge(final URI link) {
+		for (final Iterator<Map.Entry<Block, Chunk>> it = lru.entrySet().iterator(); it.hasNext(); ) {
+			final Map.Entry<Block, Chunk> entry = it.next();
+
+			if (entry.getKey().link.equals(link)) {
+				used -= entry.getValue().data.length;
+				it.remove();
+			}
+		}
+	}
+
+	private static final class Chunk {
+
+		final String stamp;
+		final byte[] data;
+
+		Chunk(final String stamp, final byte[] data) {
+			this.stamp = stamp;
+			this.data = data;
+		}
+
+	}
+
+	private static final class Block {
+
+		final URI link;
+		final int index;
+
+		Block(final URI link, final int index) {
+			this.link = link;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(final Object that) {
+			return this == that || that instanceof Block
+				&& index == ((Block)that).index
+				&& link.equals(((Block)that).link);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(link, index);
+		}
+
+	}
+
+	// Cuts the origin stream into blocks as the caller consumes it;
+	// a short or overlong body is never stored.
+	private final class Tee extends FilterInputStream {
+
+		private final URI link;
+		private final String stamp;
+		private final long size;
+
+		private byte[] part;
+		private int fill;
+		private int index;
+		private long seen;
+
+		Tee(final URI link, final String stamp, final long size, final InputStream origin) {
+			super(origin);
+			this.link = link;
+			this.stamp = stamp;
+			this.size = size;
+			this.part = new byte[(int)Math.min(unit, size)];
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) keep(new byte[] { (byte)b }, 0, 1);
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) keep(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			// Read through, a hole would spoil the block being filled
+			final byte[] junk = new byte[(int)Math.max(0, Math.min(n, 8192))];
+			return Math.max(0, read(junk, 0, junk.length));
+		}
+
+		private void keep(final byte[] b, int off, int len) {
+			seen += len;
+
+			if (part == null || seen > size) {
+				part = null;
+				return;
+			}
+
+			while (len > 0) {
+				final int take = Math.min(len, part.length - fill);
+				System.arraycopy(b, off, part, fill, take);
+				fill += take;
+				off += take;
+				len -= take;
+
+				if (fill == part.length) {
+					store(link, stamp, index++, part);
+					final long rest = size - (long)index * unit;
+					part = rest > 0 ? new byte[(int)Math.min(unit, rest)] : null;
+					fill = 0;
+				}
+			}
+		}
+
+	}
+
+}
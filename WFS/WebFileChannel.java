@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class WebFileChannel implements SeekableByteChannel {
+
+	private static final int REACH = 16 << 20;
+
+	private final WebFileSystem fact;
+	private final WebFilePath node;
+	private final long size;
+	private final int ahead;
+
+	// A lock rather than a monitor, so reads never pin a virtual thread's carrier
+	private final ReentrantLock lock = new ReentrantLock();
+	private byte[] buff = new byte[0];
+	private long base;
+	private int fill;
+	private int span;
+	private long tell;
+	private volatile boolean open = true;
+
+	WebFileChannel(
+		final WebFileSystem fact,
+		final WebFilePath node,
+		final long size,
+		final int ahead
+	) {
+		this.fact = fact;
+		this.node = node;
+		this.size = size;
+		this.ahead = ahead;
+		this.span = ahead;
+	}
+
+	@Override
+	public int read(final ByteBuffer dst) throws IOException {
+		lock.lock();
+
+		try {
+			ensureOpen();
+
+			if (tell >= size) {
+				return -1;
+			}
+
+			int done = 0;
+
+			while (dst.hasRemaining() && tell < size) {
+				if (tell < base || tell >= base + fill) {
+					refill(dst.remaining());
+				}
+
+				final int skip = (int)(tell - base);
+				final int take = Math.min(fill - skip, dst.remaining());
+
+				dst.put(buff, skip, take);
+				tell += take;
+				done += take;
+			}
+
+			return done;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void refill(final int want) throws IOException {
+		// Sequential access widens the read-ahead window, seeks reset it
+		span = tell == base + fill && fill > 0
+			? (int)Math.min(REACH, 2L * span)
+			: ahead;
+
+		final int need = (int)Math.min(size - tell, Math.max(span, Math.min(want, REACH)));
+
+		if (buff.length < need) {
+			buff = new byte[need];
+		}
+
+		try (final InputStream in = fact.part(node, tell, tell + need)) {
+			final int got = in.readNBytes(buff, 0, need);
+
+			if (got <= 0) {
+				throw new IOException(node + " truncated at " + tell);
+			}
+
+			base = tell;
+			fill = got;
+		}
+	}
+
+	@Override
+	public int write(final ByteBuffer src) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public long position() throws IOException {
+		lock.lock();
+
+		try {
+			ensureOpen();
+			return tell;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public SeekableByteChannel position(final long pos) throws IOException {
+		lock.lock();
+
+		try {
+			ensureOpen();
+
+			if (pos < 0) {
+				throw new IllegalArgumentException();
+			}
+
+			tell = pos;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		return size;
+	}
+
+	@Override
+	public SeekableByteChannel truncate(final long size) {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+
+		try {
+			open = false;
+			buff = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void ensureOpen() throws ClosedChannelException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+
+}
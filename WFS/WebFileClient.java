@@ -23,36 +23,351 @@
  */
 package WFS;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLHandshakeException;
+
+import WFS.util.Janitor;
 
 public final class WebFileClient {
 
 	private final WebFileClientConfig config;
+	private final WebFilePool pool;
+	private final Map<String, Flight> live = new ConcurrentHashMap<>();
+
+	// Per operation, since listings, whole files and ranges take very different times
+	private final WebFileLatency lagFetch = new WebFileLatency();
+	private final WebFileLatency lagFile = new WebFileLatency();
+	private final WebFileLatency lagPart = new WebFileLatency();
+
+	private ExecutorService twins;
+	private WebFileClientAsync async;
 
 	public WebFileClient(
 		final WebFileClientConfig config
 	) {
 		this.config = config;
+		this.pool = new WebFilePool(config.poolSZ);
 	}
 
 	public InputStream file(
 		final String path
 	) throws IOException {
-		return distill(connect(path));
+		return attempt(lagFile, () -> pool.lease(lagFile, () -> distill(connect(lagFile, path))), WebFileClient::quiet);
+	}
+
+	public InputStream file(
+		final String path,
+		final long from,
+		final long till
+	) throws IOException {
+		return attempt(lagPart, () -> pool.lease(lagPart, () -> {
+			final HttpURLConnection hnd = connect(lagPart, path,
+				"Range", "bytes=" + from + "-" + (till - 1));
+			final InputStream body = distill(hnd);
+
+			// Server ignored the range and sent the whole entity
+			if (hnd.getResponseCode() == HttpURLConnection.HTTP_OK) {
+				Janitor.toOffset(body, from);
+			}
+
+			return body;
+		}), WebFileClient::quiet);
+	}
+
+	// Revalidates with the validators the stale body came with: a 304 hands
+	// that body back, anything else is read fully along with its own.
+	// Bodies may be shared between callers and must not be modified.
+	Body fetch(
+		final String path,
+		final Body stale
+	) throws IOException {
+		final String[] args = stale == null ? null : stale.tags;
+		final Body data = flight(args == null ? "GET " + path : "GET " + path + " " + String.join(" ", args),
+			() -> exchange(path, args == null ? new String[0] : args));
+
+		return data != null ? data : stale;
+	}
+
+	// Retries and hedges cover the header exchange only, which is what the
+	// latency samples measure; a copy sent mid-body would just double traffic
+	private Body exchange(
+		final String path,
+		final String[] args
+	) throws IOException {
+		final Reply reply = attempt(lagFetch, () -> open(path, args), loser -> quiet(loser.body));
+
+		try (final InputStream body = reply.body) {
+			if (reply.hnd.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				pool.fresh();
+				return null;
+			}
+
+			final byte[] data = body.readAllBytes();
+			return new Body(data, tags(reply.hnd));
+		}
+	}
+
+	private Reply open(
+		final String path,
+		final String[] args
+	) throws IOException {
+		final HttpURLConnection[] hnd = { null };
+		final InputStream body = pool.lease(lagFetch, () -> distill(hnd[0] = connect(lagFetch, path, args)));
+
+		return new Reply(hnd[0], body);
+	}
+
+	// Concurrent identical requests share one exchange; a null result means 304
+	private Body flight(
+		final String key,
+		final Call<Body> call
+	) throws IOException {
+		final Flight mine = new Flight();
+		final Flight lead = board(key, mine);
+
+		if (lead != null) {
+			return lead.await();
+		}
+
+		try {
+			final Body data = call.run();
+			mine.complete(data);
+			return data;
+		} catch (final IOException | RuntimeException | Error e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			live.remove(key, mine);
+		}
 	}
 
+	// Hands back the flight already under way for key, else registers mine and hands back null
+	private Flight board(final String key, final Flight mine) {
+		final Flight lead = live.compute(key, (k, cur) -> cur == null ? mine : cur.board());
+
+		if (lead == mine) {
+			return null;
+		}
+
+		pool.joined();
+		return lead;
+	}
+
+	// GETs are idempotent, so transient failures are retried after a jittered backoff
+	private <T> T attempt(
+		final WebFileLatency lag,
+		final Call<T> call,
+		final Consumer<T> drop
+	) throws IOException {
+		for (int n = 0; ; n++) {
+			try {
+				return config.hedge ? hedge(lag, call, drop) : call.run();
+			} catch (final IOException e) {
+				if (n >= config.retry || !retry(e)) throw e;
+				pool.retried();
+				backoff(n);
+			}
+		}
+	}
+
+	// A second copy goes out once the first outlives the p95; the first
+	// answer wins and the loser's result is handed to drop, if any.
+	// With every lane taken, a copy would only queue behind the first.
+	private <T> T hedge(
+		final WebFileLatency lag,
+		final Call<T> call,
+		final Consumer<T> drop
+	) throws IOException {
+		final long wait = lag.quantile(0.95);
+
+		if (wait < 0 || pool.available() == 0) {
+			return call.run();
+		}
+
+		final CompletableFuture<T> win = new CompletableFuture<>();
+		final AtomicInteger sent = new AtomicInteger(1);
+		final AtomicInteger lost = new AtomicInteger();
+
+		final Runnable copy = () -> {
+			try {
+				final T data = call.run();
+				if (!win.complete(data) && drop != null) drop.accept(data);
+			} catch (final IOException | RuntimeException e) {
+				if (lost.incrementAndGet() >= sent.get()) win.completeExceptionally(e);
+			}
+		};
+
+		final ExecutorService exec = twins();
+		exec.execute(copy);
+
+		try {
+			try {
+				return win.get(wait, TimeUnit.NANOSECONDS);
+			} catch (final TimeoutException e) {
+				sent.incrementAndGet();
+				pool.hedged();
+				exec.execute(copy);
+				return win.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			win.thenAccept(data -> { if (drop != null) drop.accept(data); });
+			throw new InterruptedIOException();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	// Shares this client's lanes, latencies and counters
+	synchronized WebFileClientAsync async() {
+		if (async == null) {
+			async = new WebFileClientAsync(config, pool, lagFetch, lagFile);
+		}
+
+		return async;
+	}
+
+	private synchronized ExecutorService twins() {
+		if (twins == null) {
+			final AtomicInteger tick = new AtomicInteger();
+
+			twins = Executors.newCachedThreadPool(task -> {
+				final Thread t = new Thread(task, "webfs-hedge-" + tick.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		return twins;
+	}
+
+	static boolean retry(final IOException e) {
+		if (e instanceof Refusal) {
+			final int code = ((Refusal)e).code;
+			return code >= 500 || code == 429;
+		}
+
+		// Timeouts are worth another try, interrupts and bad addresses are not
+		return e instanceof SocketTimeoutException || !(e instanceof InterruptedIOException
+			|| e instanceof UnknownHostException || e instanceof MalformedURLException
+			|| e instanceof SSLHandshakeException);
+	}
+
+	// Full jitter: anywhere between zero and the doubled ceiling
+	static long pause(final WebFileClientConfig config, final int n) {
+		final long cap = Math.min(30000L, (long)config.backTO << Math.min(n, 16));
+		return ThreadLocalRandom.current().nextLong(cap + 1);
+	}
+
+	private void backoff(final int n) throws IOException {
+		try {
+			Thread.sleep(pause(config, n));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	// An explicit read timeout wins; else a generous multiple of the p99, once known
+	private int patience(final WebFileLatency lag) {
+		if (config.readTO > 0 || !config.adapt) {
+			return config.readTO;
+		}
+
+		final long p99 = lag.quantile(0.99);
+		return p99 < 0 ? 0 : (int)Math.min(Integer.MAX_VALUE, Math.max(1000L, 8 * TimeUnit.NANOSECONDS.toMillis(p99)));
+	}
+
+	static void quiet(final InputStream body) {
+		try {
+			body.close();
+		} catch (final IOException e) {
+			// nothing left to save
+		}
+	}
+
+	private static String[] tags(final HttpURLConnection broker) {
+		final String etag = broker.getHeaderField("ETag");
+		final String last = broker.getHeaderField("Last-Modified");
+
+		return etag != null && last != null
+			? new String[] { "If-None-Match", etag, "If-Modified-Since", last }
+			: etag != null ? new String[] { "If-None-Match", etag }
+			: last != null ? new String[] { "If-Modified-Since", last }
+			: null;
+	}
+
+	// Streams straight into the lines, unless someone joined while the
+	// headers were on their way: then the body is read once and shared
 	public WebFileLines list(
 		final String path
 	) throws IOException {
-		return new WebFileLines(file(path));
+		final String key = "GET " + path;
+		final Flight mine = new Flight();
+		final Flight lead = board(key, mine);
+
+		if (lead != null) {
+			return new WebFileLines(new ByteArrayInputStream(lead.await().data), config.rawIO);
+		}
+
+		final Reply reply;
+
+		try {
+			reply = attempt(lagFetch, () -> open(path, new String[0]), loser -> quiet(loser.body));
+		} catch (final IOException | RuntimeException | Error e) {
+			live.remove(key, mine);
+			mine.completeExceptionally(e);
+			throw e;
+		}
+
+		// Once off the board nobody else can join
+		live.remove(key, mine);
+
+		if (mine.crew == 0) {
+			return new WebFileLines(reply.body, config.rawIO);
+		}
+
+		try (final InputStream in = reply.body) {
+			final byte[] data = in.readAllBytes();
+			mine.complete(new Body(data, tags(reply.hnd)));
+			return new WebFileLines(new ByteArrayInputStream(data), config.rawIO);
+		} catch (final IOException | RuntimeException | Error e) {
+			mine.completeExceptionally(e);
+			throw e;
+		}
 	}
 
 	private HttpURLConnection connect(
+		final WebFileLatency lag,
 		final String path,
 		final String... args
 	) throws IOException {
@@ -67,26 +382,140 @@ public final class WebFileClient {
 		}
 
 		hnd.setConnectTimeout(config.connTO);
-		hnd.setReadTimeout(config.readTO);
+		hnd.setReadTimeout(patience(lag));
 		hnd.setRequestMethod("GET");
 
+		boolean part = false;
+
 		for (int i = 1; i < args.length; i += 2) {
 			hnd.setRequestProperty(args[i-1], args[i]);
+			part |= "Range".equals(args[i-1]);
 		}
 
+		// Ranges address the encoded entity, so those stay identity
+		if (!part && config.zipped != null) {
+			hnd.setRequestProperty("Accept-Encoding", config.zipped);
+		}
+
+		// No doOutput, a GET carries no request body
 		hnd.setDoInput(true);
-		hnd.setDoOutput(true);
 		return hnd;
 	}
 
 	private InputStream distill(
 		final HttpURLConnection broker
 	) throws IOException {
-		if (broker.getResponseCode() != HttpURLConnection.HTTP_OK) {
-			throw new IOException(broker.getResponseMessage());
+		final int code = broker.getResponseCode();
+
+		if (code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_PARTIAL
+				&& code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+			// Drain the error body, else the socket cannot be reused
+			try (final InputStream junk = broker.getErrorStream()) {
+				if (junk != null) junk.transferTo(OutputStream.nullOutputStream());
+			}
+
+			throw new Refusal(code, broker.getResponseMessage());
+		}
+
+		final InputStream wire = pool.wire(broker.getInputStream());
+		final String zipped = broker.getContentEncoding();
+
+		if (code == HttpURLConnection.HTTP_NOT_MODIFIED || zipped == null || broker.getContentLengthLong() == 0) {
+			return wire;
+		}
+
+		switch (zipped.trim().toLowerCase(Locale.ROOT)) {
+			case "gzip":
+			case "x-gzip":
+				return new GZIPInputStream(wire, 8192);
+			case "deflate":
+				return new InflaterInputStream(wire, new Inflater(), 8192);
+			default:
+				return wire;
+		}
+	}
+
+	public Map<String, Long> metrics() {
+		final Map<String, Long> map = pool.toMap();
+		map.put("fetchP50MS", millis(lagFetch.quantile(0.50)));
+		map.put("fetchP99MS", millis(lagFetch.quantile(0.99)));
+		map.put("fileP50MS",  millis(lagFile.quantile(0.50)));
+		map.put("fileP99MS",  millis(lagFile.quantile(0.99)));
+		map.put("rangeP50MS", millis(lagPart.quantile(0.50)));
+		map.put("rangeP99MS", millis(lagPart.quantile(0.99)));
+		return map;
+	}
+
+	private static long millis(final long nanos) {
+		return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private interface Call<T> {
+		T run() throws IOException;
+	}
+
+	// A listing together with the validators of the response it came in,
+	// so a revalidation never vouches for a body it did not produce
+	static final class Body {
+
+		final byte[] data;
+		final String[] tags;
+
+		Body(final byte[] data, final String[] tags) {
+			this.data = data;
+			this.tags = tags;
+		}
+
+	}
+
+	// Headers in, body still on the wire
+	private static final class Reply {
+
+		final HttpURLConnection hnd;
+		final InputStream body;
+
+		Reply(final HttpURLConnection hnd, final InputStream body) {
+			this.hnd = hnd;
+			this.body = body;
+		}
+
+	}
+
+	// An exchange in progress; crew counts the callers waiting on it, and only
+	// changes inside live.compute, so it is settled once the flight leaves live
+	private static final class Flight extends CompletableFuture<Body> {
+
+		private volatile int crew;
+
+		Flight board() {
+			crew++;
+			return this;
+		}
+
+		Body await() throws IOException {
+			try {
+				return join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof IOException) throw new IOException(e.getCause().getMessage(), e.getCause());
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+				throw e;
+			}
+		}
+
+	}
+
+	// A non-2xx status, kept apart from transport failures for the retry decision
+	static final class Refusal extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		final int code;
+
+		Refusal(final int code, final String message) {
+			super(message);
+			this.code = code;
 		}
 
-		return broker.getInputStream();
 	}
 
 }
@@ -0,0 +1,355 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Non-blocking counterpart of WebFileClient; HTTP/2 where the server offers it.
+// Goes through the same connection lanes, retry rules and counters.
+public final class WebFileClientAsync {
+
+	private final WebFileClientConfig config;
+	private final WebFilePool pool;
+	private final WebFileLatency lagFetch;
+	private final WebFileLatency lagFile;
+	private final HttpClient http;
+
+	public WebFileClientAsync(
+		final WebFileClientConfig config
+	) {
+		this(config, new WebFilePool(config.poolSZ), new WebFileLatency(), new WebFileLatency());
+	}
+
+	WebFileClientAsync(
+		final WebFileClientConfig config,
+		final WebFilePool pool,
+		final WebFileLatency lagFetch,
+		final WebFileLatency lagFile
+	) {
+		final HttpClient.Builder hcb = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2);
+
+		if (config.connTO > 0) {
+			hcb.connectTimeout(Duration.ofMillis(config.connTO));
+		}
+
+		if (config.proxy != null) {
+			hcb.proxy(ProxySelector.of((InetSocketAddress)config.proxy.address()));
+		}
+
+		if (config.blind != null) {
+			hcb.sslContext(config.blind);
+		}
+
+		this.config = config;
+		this.pool = pool;
+		this.lagFetch = lagFetch;
+		this.lagFile = lagFile;
+		this.http = hcb.build();
+	}
+
+	public CompletableFuture<InputStream> file(
+		final String path
+	) {
+		return attempt(0, () -> open(lagFile, path));
+	}
+
+	// The iterator reads the body as it goes, so iteration itself blocks
+	public CompletableFuture<Iterator<CharSequence>> list(
+		final String path
+	) {
+		return attempt(0, () -> open(lagFetch, path).thenApply(body -> new WebFileLines(body, config.rawIO)));
+	}
+
+	// Lines are pushed as they arrive, under the subscriber's demand;
+	// once they flow, failures go to the subscriber and are not retried
+	public Flow.Publisher<String> lines(
+		final String path
+	) {
+		return subscriber -> attempt(0, () -> push(path, subscriber)).whenComplete((none, err) -> {
+			if (err != null) {
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override public void request(final long n) {}
+					@Override public void cancel() {}
+				});
+				subscriber.onError(err);
+			}
+		});
+	}
+
+	public Map<String, Long> metrics() {
+		return pool.toMap();
+	}
+
+	// The lane is held from the request until the body is drained or closed
+	private CompletableFuture<InputStream> open(final WebFileLatency lag, final String path) {
+		final HttpRequest req = request(path, true);
+		final CompletableFuture<InputStream> done = new CompletableFuture<>();
+
+		pool.enter().thenRun(() -> {
+			final long t0 = System.nanoTime();
+
+			http.sendAsync(req, BodyHandlers.ofInputStream()).whenComplete((rsp, err) -> {
+				final Throwable cause = err != null ? unwrap(err) : null;
+
+				if (cause == null || cause instanceof HttpTimeoutException) {
+					lag.add(System.nanoTime() - t0);
+				}
+
+				if (cause != null) {
+					pool.fail();
+					done.completeExceptionally(cause);
+				} else if (rsp.statusCode() != 200) {
+					WebFileClient.quiet(rsp.body());
+					pool.fail();
+					done.completeExceptionally(new WebFileClient.Refusal(rsp.statusCode(), rsp.uri() + " answered " + rsp.statusCode()));
+				} else {
+					final InputStream body = pool.hold(distill(rsp));
+					if (!done.complete(body)) WebFileClient.quiet(body); // cancelled meanwhile
+				}
+			});
+		});
+
+		return done;
+	}
+
+	// Completes once the lines are bound to the subscriber, which then holds the lane
+	private CompletableFuture<Void> push(final String path, final Flow.Subscriber<? super String> subscriber) {
+		final HttpRequest req = request(path, false);
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		pool.enter().thenRun(() -> {
+			final long t0 = System.nanoTime();
+			final AtomicBoolean bound = new AtomicBoolean();
+			final AtomicBoolean held = new AtomicBoolean(true);
+			final Runnable free = () -> { if (held.compareAndSet(true, false)) pool.release(); };
+
+			http.sendAsync(req, info -> {
+				lagFetch.add(System.nanoTime() - t0);
+
+				if (info.statusCode() == 200) {
+					bound.set(true);
+					done.complete(null);
+					return BodySubscribers.fromLineSubscriber(new Held(subscriber, free));
+				}
+
+				return BodySubscribers.replacing(null);
+			}).whenComplete((rsp, err) -> {
+				if (bound.get()) {
+					free.run(); // the line subscriber signals on its own
+					return;
+				}
+
+				held.set(false);
+				pool.fail();
+				done.completeExceptionally(err != null ? unwrap(err)
+					: new WebFileClient.Refusal(rsp.statusCode(), path + " answered " + rsp.statusCode()));
+			});
+		});
+
+		return done;
+	}
+
+	// Same retry rules and jittered backoff as the blocking client, without a thread asleep
+	private <T> CompletableFuture<T> attempt(final int n, final Supplier<CompletableFuture<T>> call) {
+		final CompletableFuture<T> done = new CompletableFuture<>();
+
+		call.get().whenComplete((data, err) -> {
+			if (err == null) {
+				done.complete(data);
+				return;
+			}
+
+			final Throwable cause = unwrap(err);
+
+			if (n >= config.retry || !(cause instanceof IOException) || !WebFileClient.retry((IOException)cause)) {
+				done.completeExceptionally(cause);
+				return;
+			}
+
+			pool.retried();
+
+			CompletableFuture.delayedExecutor(WebFileClient.pause(config, n), TimeUnit.MILLISECONDS).execute(() -> {
+				try {
+					attempt(n + 1, call).whenComplete((next, fail) -> {
+						if (fail == null) done.complete(next); else done.completeExceptionally(fail);
+					});
+				} catch (final RuntimeException e) {
+					done.completeExceptionally(e);
+				}
+			});
+		});
+
+		return done;
+	}
+
+	private HttpRequest request(final String path, final boolean zipped) {
+		final HttpRequest.Builder req;
+
+		try {
+			req = HttpRequest.newBuilder(new URL(config.server, path).toURI());
+		} catch (final MalformedURLException | URISyntaxException e) {
+			throw new IllegalArgumentException(path, e);
+		}
+
+		if (config.readTO > 0) {
+			req.timeout(Duration.ofMillis(config.readTO));
+		}
+
+		if (zipped && config.zipped != null) {
+			req.header("Accept-Encoding", config.zipped);
+		}
+
+		return req.GET().build();
+	}
+
+	// Runs on the client's own threads, so it must not touch the body
+	private InputStream distill(final HttpResponse<InputStream> rsp) {
+		final InputStream wire = pool.wire(rsp.body());
+		final String zipped = rsp.headers().firstValue("Content-Encoding").orElse("");
+
+		switch (zipped.trim().toLowerCase(Locale.ROOT)) {
+			case "gzip":
+			case "x-gzip":
+			case "deflate":
+				return new Decoded(wire, zipped.trim().toLowerCase(Locale.ROOT));
+			default:
+				return wire;
+		}
+	}
+
+	// Callers see the IOException itself, as with the blocking client
+	private static Throwable unwrap(final Throwable err) {
+		return err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+	}
+
+	// Gives the lane back once the subscriber has all lines, or gives up on them
+	private static final class Held implements Flow.Subscriber<String> {
+
+		private final Flow.Subscriber<? super String> sink;
+		private final Runnable free;
+
+		Held(final Flow.Subscriber<? super String> sink, final Runnable free) {
+			this.sink = sink;
+			this.free = free;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription s) {
+			sink.onSubscribe(new Flow.Subscription() {
+				@Override public void request(final long n) { s.request(n); }
+				@Override public void cancel() { s.cancel(); free.run(); }
+			});
+		}
+
+		@Override
+		public void onNext(final String line) {
+			sink.onNext(line);
+		}
+
+		@Override
+		public void onError(final Throwable err) {
+			free.run();
+			sink.onError(err);
+		}
+
+		@Override
+		public void onComplete() {
+			free.run();
+			sink.onComplete();
+		}
+
+	}
+
+	// Defers the decoder (and the gzip header read) to the first read
+	private static final class Decoded extends FilterInputStream {
+
+		private String zipped;
+
+		Decoded(final InputStream body, final String zipped) {
+			super(body);
+			this.zipped = zipped;
+		}
+
+		private void decode() throws IOException {
+			if (zipped != null) {
+				in = zipped.equals("deflate")
+					? new InflaterInputStream(in, new Inflater(), 8192)
+					: new GZIPInputStream(in, 8192);
+				zipped = null;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			decode();
+			return in.read();
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			decode();
+			return in.read(b, off, len);
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			decode();
+			return in.skip(n);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return zipped != null ? 0 : in.available();
+		}
+
+	}
+
+}
@@ -27,9 +27,12 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.util.Map;
 import java.util.Objects;
 
 import javax.net.ssl.SSLContext;
@@ -37,25 +40,86 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import WFS.util.Janitor;
+
 public final class WebFileClientConfig {
 
 	public final Proxy proxy;
 	public final int connTO; // default 1000
 	public final int readTO; // default 0
+	public final int poolSZ; // default http.maxConnections, else 5
+	public final int aheadSZ; // default 65536
+	public final long cacheSZ; // default 33554432
+	public final int blockSZ; // default 65536
+	public final int listTO; // default 10000
+	public final int listSZ; // default 1024
+	public final int walkPar; // default 8
+	public final int walkMax; // default 2147483647
+	public final boolean rawIO; // default false
+	public final String zipped; // default "gzip, deflate"
+	public final boolean loom; // default false
+	public final long copySZ; // default 1073741824
+	public final int pollTO; // default 1000
+	public final int retry; // default 2
+	public final int backTO; // default 100
+	public final boolean adapt; // default true
+	public final boolean hedge; // default false
+	public final Path mirror;
+	public final Path index;
 	public final URL server;
 	public final SSLSocketFactory unsafe;
+	public final SSLContext blind;
 
 	private WebFileClientConfig(
 		String proxyHostPort,
 		String connTimeoutMS,
 		String readTimeoutMS,
+		String poolSizeLimit,
+		String readAheadSize,
+		String cacheBudget,
+		String cacheBlockSize,
+		String listingTtlMS,
+		String listingLimit,
+		String walkParallelism,
+		String walkDepth,
+		String rawListingLines,
+		String acceptEncoding,
+		String virtualThreads,
+		String listingIndex,
+		String mirrorDirectory,
+		String mirrorQuota,
+		String watchIntervalMS,
+		String retryLimit,
+		String retryBackoffMS,
+		String adaptiveTimeout,
+		String hedgeRequests,
 		String serverBaseUrl
 	) {
 		this.proxy = asProxy(proxyHostPort);
 		this.connTO = asAbort(connTimeoutMS, "1000");
 		this.readTO = asAbort(readTimeoutMS, "0");
+		this.poolSZ = asLimit(poolSizeLimit, keepAlive());
+		this.aheadSZ = asLimit(readAheadSize, "65536");
+		this.cacheSZ = asBytes(cacheBudget, "33554432");
+		this.blockSZ = asLimit(cacheBlockSize, "65536");
+		this.listTO = asAbort(listingTtlMS, "10000");
+		this.listSZ = asLimit(listingLimit, "1024");
+		this.walkPar = asLimit(walkParallelism, "8");
+		this.walkMax = asAbort(walkDepth, "2147483647");
+		this.rawIO = Boolean.parseBoolean(rawListingLines);
+		this.zipped = asCodec(acceptEncoding, "gzip, deflate");
+		this.loom = Boolean.parseBoolean(virtualThreads);
+		this.index = asFile(listingIndex);
+		this.copySZ = asBytes(mirrorQuota, "1073741824");
+		this.mirror = asFile(mirrorDirectory);
+		this.pollTO = asLimit(watchIntervalMS, "1000");
+		this.retry = asAbort(retryLimit, "2");
+		this.backTO = asAbort(retryBackoffMS, "100");
+		this.adapt = Boolean.parseBoolean(Objects.toString(adaptiveTimeout, "true"));
+		this.hedge = Boolean.parseBoolean(hedgeRequests);
 		this.server = asURL(serverBaseUrl);
-		this.unsafe = asBlind(serverBaseUrl);
+		this.blind = asBlind(serverBaseUrl);
+		this.unsafe = blind == null ? null : blind.getSocketFactory();
 	}
 
 	private static URL asURL(final String serverBaseUrl) {
@@ -66,6 +130,10 @@ public final class WebFileClientConfig {
 		}
 	}
 
+	private static Path asFile(final String file) {
+		return file == null || file.isEmpty() ? null : Paths.get(file);
+	}
+
 	private static Proxy asProxy(final String proxyHostPort) {
 		if (proxyHostPort == null || proxyHostPort.isEmpty()) {
 			return null;
@@ -84,7 +152,26 @@ public final class WebFileClientConfig {
 		return Math.max(0, Integer.parseInt(Objects.toString(timeoutMillis, defaultMillis)));
 	}
 
-	private static SSLSocketFactory asBlind(final String serverBaseUrl) {
+	private static int asLimit(final String limit, final String defaultLimit) {
+		return Math.max(1, Integer.parseInt(Objects.toString(limit, defaultLimit)));
+	}
+
+	// The JDK keeps at most this many idle connections per server, more lanes would not be reused
+	private static String keepAlive() {
+		final int keep = Integer.getInteger("http.maxConnections", 5);
+		return Integer.toString(keep > 0 ? keep : 5);
+	}
+
+	private static long asBytes(final String bytes, final String defaultBytes) {
+		return Math.max(0, Long.parseLong(Objects.toString(bytes, defaultBytes)));
+	}
+
+	private static String asCodec(final String encodings, final String defaultEncodings) {
+		final String codec = Objects.toString(encodings, defaultEncodings).trim();
+		return codec.isEmpty() || codec.equalsIgnoreCase("identity") ? null : codec;
+	}
+
+	private static SSLContext asBlind(final String serverBaseUrl) {
 		if (!serverBaseUrl.startsWith("https")) {
 			return null;
 		}
@@ -99,7 +186,7 @@ public final class WebFileClientConfig {
 			final SSLContext ctx = SSLContext.getInstance("TLS");
 			ctx.init(null, trusts, new SecureRandom());
 
-			return ctx.getSocketFactory();
+			return ctx;
 		} catch (final GeneralSecurityException e) {
 			return null;
 		}
@@ -110,6 +197,25 @@ public final class WebFileClientConfig {
 		private String proxyHostPort = null;
 		private String connTimeoutMS = null;
 		private String readTimeoutMS = null;
+		private String poolSizeLimit = null;
+		private String readAheadSize = null;
+		private String cacheBudget = null;
+		private String cacheBlockSize = null;
+		private String listingTtlMS = null;
+		private String listingLimit = null;
+		private String walkParallelism = null;
+		private String walkDepth = null;
+		private String rawListingLines = null;
+		private String acceptEncoding = null;
+		private String virtualThreads = null;
+		private String listingIndex = null;
+		private String mirrorDirectory = null;
+		private String mirrorQuota = null;
+		private String watchIntervalMS = null;
+		private String retryLimit = null;
+		private String retryBackoffMS = null;
+		private String adaptiveTimeout = null;
+		private String hedgeRequests = null;
 		private String serverBaseUrl = null;
 
 		public Builder setProxyHostPort(final String proxyHostPort) {
@@ -123,6 +229,110 @@ public final class WebFileClientConfig {
 			return this;
 		}
 
+		public Builder setPoolSizeLimit(final String poolSizeLimit) {
+			this.poolSizeLimit = poolSizeLimit;
+			return this;
+		}
+
+		public Builder setReadAheadSize(final String readAheadSize) {
+			this.readAheadSize = readAheadSize;
+			return this;
+		}
+
+		public Builder setCacheBudget(final String cacheBudget, final String cacheBlockSize) {
+			this.cacheBudget = cacheBudget;
+			this.cacheBlockSize = cacheBlockSize;
+			return this;
+		}
+
+		public Builder setListingCache(final String listingTtlMS, final String listingLimit) {
+			this.listingTtlMS = listingTtlMS;
+			this.listingLimit = listingLimit;
+			return this;
+		}
+
+		public Builder setWalkParallelism(final String walkParallelism, final String walkDepth) {
+			this.walkParallelism = walkParallelism;
+			this.walkDepth = walkDepth;
+			return this;
+		}
+
+		public Builder setRawListingLines(final String rawListingLines) {
+			this.rawListingLines = rawListingLines;
+			return this;
+		}
+
+		public Builder setAcceptEncoding(final String acceptEncoding) {
+			this.acceptEncoding = acceptEncoding;
+			return this;
+		}
+
+		public Builder setVirtualThreads(final String virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		public Builder setListingIndex(final String listingIndex) {
+			this.listingIndex = listingIndex;
+			return this;
+		}
+
+		public Builder setLocalMirror(final String mirrorDirectory, final String mirrorQuota) {
+			this.mirrorDirectory = mirrorDirectory;
+			this.mirrorQuota = mirrorQuota;
+			return this;
+		}
+
+		public Builder setWatchInterval(final String watchIntervalMS) {
+			this.watchIntervalMS = watchIntervalMS;
+			return this;
+		}
+
+		public Builder setRetries(final String retryLimit, final String retryBackoffMS) {
+			this.retryLimit = retryLimit;
+			this.retryBackoffMS = retryBackoffMS;
+			return this;
+		}
+
+		public Builder setAdaptiveTimeout(final String adaptiveTimeout) {
+			this.adaptiveTimeout = adaptiveTimeout;
+			return this;
+		}
+
+		public Builder setHedgeRequests(final String hedgeRequests) {
+			this.hedgeRequests = hedgeRequests;
+			return this;
+		}
+
+		// Keys are the field names above; env wins over .myriapod
+		public Builder setOptions(final Map<String, ?> env) {
+			final Map<String, String> opts = Janitor.toOptions(env);
+
+			proxyHostPort = opts.getOrDefault("proxyHostPort", proxyHostPort);
+			connTimeoutMS = opts.getOrDefault("connTimeoutMS", connTimeoutMS);
+			readTimeoutMS = opts.getOrDefault("readTimeoutMS", readTimeoutMS);
+			poolSizeLimit = opts.getOrDefault("poolSizeLimit", poolSizeLimit);
+			readAheadSize = opts.getOrDefault("readAheadSize", readAheadSize);
+			cacheBudget = opts.getOrDefault("cacheBudget", cacheBudget);
+			cacheBlockSize = opts.getOrDefault("cacheBlockSize", cacheBlockSize);
+			listingTtlMS = opts.getOrDefault("listingTtlMS", listingTtlMS);
+			listingLimit = opts.getOrDefault("listingLimit", listingLimit);
+			walkParallelism = opts.getOrDefault("walkParallelism", walkParallelism);
+			walkDepth = opts.getOrDefault("walkDepth", walkDepth);
+			rawListingLines = opts.getOrDefault("rawListingLines", rawListingLines);
+			acceptEncoding = opts.getOrDefault("acceptEncoding", acceptEncoding);
+			virtualThreads = opts.getOrDefault("virtualThreads", virtualThreads);
+			listingIndex = opts.getOrDefault("listingIndex", listingIndex);
+			mirrorDirectory = opts.getOrDefault("mirrorDirectory", mirrorDirectory);
+			mirrorQuota = opts.getOrDefault("mirrorQuota", mirrorQuota);
+			watchIntervalMS = opts.getOrDefault("watchIntervalMS", watchIntervalMS);
+			retryLimit = opts.getOrDefault("retryLimit", retryLimit);
+			retryBackoffMS = opts.getOrDefault("retryBackoffMS", retryBackoffMS);
+			adaptiveTimeout = opts.getOrDefault("adaptiveTimeout", adaptiveTimeout);
+			hedgeRequests = opts.getOrDefault("hedgeRequests", hedgeRequests);
+			return this;
+		}
+
 		public Builder setServerBaseUrl(final String serverBaseUrl) {
 			this.serverBaseUrl = serverBaseUrl;
 			return this;
@@ -130,7 +340,11 @@ public final class WebFileClientConfig {
 
 		public WebFileClientConfig toConfig() {
 			return new WebFileClientConfig(
-				proxyHostPort, connTimeoutMS, readTimeoutMS, serverBaseUrl);
+				proxyHostPort, connTimeoutMS, readTimeoutMS, poolSizeLimit, readAheadSize,
+				cacheBudget, cacheBlockSize, listingTtlMS, listingLimit,
+				walkParallelism, walkDepth, rawListingLines, acceptEncoding,
+				virtualThreads, listingIndex, mirrorDirectory, mirrorQuota, watchIntervalMS,
+				retryLimit, retryBackoffMS, adaptiveTimeout, hedgeRequests, serverBaseUrl);
 		}
 
 	}
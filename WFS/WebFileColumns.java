@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+// Attributes of up to 64 consecutive listing entries, never reallocated once handed out;
+// one element per slot, so flashing one entry never rewrites a neighbour's word
+final class WebFileColumns {
+
+	static final int ROOM = 64;
+
+	private final long[] size;
+	private final long[] secs;
+	private final int[] nano;
+	private final boolean[] file;
+	private int used;
+
+	WebFileColumns(final int room) {
+		this.size = new long[room];
+		this.secs = new long[room];
+		this.nano = new int[room];
+		this.file = new boolean[room];
+	}
+
+	boolean isFull() {
+		return used == size.length;
+	}
+
+	WebFileAttributes add(final boolean file, final long size, final long secs, final int nano) {
+		final int slot = used++;
+		put(slot, file, size, secs, nano);
+		return new WebFileAttributes(this, slot);
+	}
+
+	void put(final int slot, final boolean file, final long size, final long secs, final int nano) {
+		this.size[slot] = size;
+		this.secs[slot] = secs;
+		this.nano[slot] = nano;
+		this.file[slot] = file;
+	}
+
+	boolean file(final int slot) {
+		return file[slot];
+	}
+
+	long size(final int slot) {
+		return size[slot];
+	}
+
+	long secs(final int slot) {
+		return secs[slot];
+	}
+
+	int nano(final int slot) {
+		return nano[slot];
+	}
+
+}
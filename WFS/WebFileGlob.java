@@ -0,0 +1,500 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+// Globs compiled to an NFA, determinized lazily one transition at a time;
+// several globs share one NFA and each accepting state reports its lowest rule
+final class WebFileGlob {
+
+	private static final String HEX = "0123456789ABCDEF";
+
+	private static final int CHAR = 0, ONE = 1, SET = 2, STAR = 3, DEEP = 4, SLASH = 5, SPLIT = 6, JUMP = 7, TAIL = 8, DONE = 9;
+
+	private final int[] kind;
+	private final int[] arg;
+	private final int[][] alts;
+	private final char[][] sets;
+	private final int[] rule;
+	private final boolean[] seal;
+
+	private final List<BitSet> seen = new ArrayList<>();
+	private final Map<BitSet, Integer> ids = new HashMap<>();
+	private volatile Row[] rows = new Row[16];
+	private volatile Home home;
+
+	private WebFileGlob(final Nodes nfa) {
+		this.kind = nfa.kind.stream().mapToInt(Integer::intValue).toArray();
+		this.arg = nfa.arg.stream().mapToInt(Integer::intValue).toArray();
+		this.alts = nfa.alts.toArray(new int[0][]);
+		this.sets = nfa.sets.toArray(new char[0][]);
+		this.rule = nfa.rule.stream().mapToInt(Integer::intValue).toArray();
+		this.seal = new boolean[kind.length];
+
+		// A '**' that reaches its own DONE without consuming matches every continuation
+		for (int i = 0; i < kind.length; i++) {
+			if (kind[i] == DEEP) {
+				final BitSet tail = new BitSet();
+				tail.set(i + 1);
+				final BitSet shut = close(tail);
+
+				for (int j = shut.nextSetBit(0); j >= 0 && !seal[i]; j = shut.nextSetBit(j + 1)) {
+					seal[i] = kind[j] == DONE && rule[j] == rule[i];
+				}
+			}
+		}
+
+		final BitSet head = new BitSet();
+		head.set(0);
+		intern(close(head));
+	}
+
+	static WebFileGlob compile(final String glob) {
+		return compile(Collections.singletonList(glob));
+	}
+
+	static WebFileGlob compile(final List<String> globs) {
+		final Nodes nfa = new Nodes();
+		final int[] heads = new int[globs.size()];
+
+		if (globs.size() > 1) {
+			nfa.add(SPLIT, 0);
+			nfa.alts.add(heads);
+		}
+
+		for (int r = 0; r < globs.size(); r++) {
+			final String glob = globs.get(r);
+
+			nfa.owner = r;
+			heads[r] = nfa.kind.size();
+
+			final int end = nfa.seq(glob, 0, false);
+
+			if (end < glob.length()) {
+				throw new PatternSyntaxException("unbalanced", glob, end);
+			}
+
+			// Directory URIs end in a slash the pattern need not spell out
+			if (glob.isEmpty() || glob.charAt(glob.length() - 1) != '/') {
+				nfa.add(TAIL, 0);
+			}
+
+			nfa.add(DONE, r);
+		}
+
+		return new WebFileGlob(nfa);
+	}
+
+	int start() {
+		return 0;
+	}
+
+	int feed(final int state, final char c) {
+		final Row[] table = rows;
+		final Row row = state < table.length ? table[state] : null;
+
+		if (row != null && c < 128) {
+			final int next = row.next[c];
+			if (next != 0) return next - 1;
+		}
+
+		return step(state, c);
+	}
+
+	boolean accepts(final int state) {
+		return rule(state) >= 0;
+	}
+
+	// Lowest rule accepting here, or -1
+	int rule(final int state) {
+		return row(state).done;
+	}
+
+	// Whether the rule could still accept some continuation of this state
+	boolean live(final int state, final int rule) {
+		return row(state).live.get(rule);
+	}
+
+	// Lowest rule accepting every continuation of this state, or -1
+	int sure(final int state) {
+		return row(state).sure;
+	}
+
+	private Row row(final int state) {
+		final Row[] table = rows;
+		final Row row = state < table.length ? table[state] : null;
+
+		return row != null ? row : row0(state);
+	}
+
+	private synchronized Row row0(final int state) {
+		return rows[state];
+	}
+
+	// Listed paths are fed name by name, anything else by its text
+	int run(final Path path) {
+		final WebFilePath top = path instanceof WebFilePath ? top((WebFilePath)path) : null;
+
+		return top != null
+			? feed((WebFilePath)path, top)
+			: feed(start(), path.toString());
+	}
+
+	private static WebFilePath top(WebFilePath node) {
+		if (node.isBare()) {
+			return null;
+		}
+
+		while (node.getParent() != null) node = node.getParent();
+		return node == node.getFileSystem().getRoot() ? node : null;
+	}
+
+	private int feed(final WebFilePath node, final WebFilePath top) {
+		if (node == top) {
+			final Home seen = home;
+
+			if (seen != null && seen.root == top) {
+				return seen.state;
+			}
+
+			final int state = feed(start(), top.toString());
+			home = new Home(top, state);
+			return state;
+		}
+
+		int state = feed(node.getParent(), top);
+		state = quote(state, node.getMemoName());
+		return node.getMemoAtts().isRegularFile() ? state : feed(state, '/');
+	}
+
+	private int feed(int state, final String text) {
+		for (int i = 0; i < text.length(); i++) {
+			state = feed(state, text.charAt(i));
+		}
+
+		return state;
+	}
+
+	// Mirrors the quoting of URI(scheme, ssp, fragment), which is what toString() shows
+	private int quote(int state, final String name) {
+		for (int i = 0; i < name.length(); i++) {
+			final char c = name.charAt(i);
+
+			if (c < 128 ? plain(c) : !Character.isISOControl(c) && !Character.isSpaceChar(c)) {
+				state = feed(state, c);
+				continue;
+			}
+
+			final int cp = name.codePointAt(i);
+			final byte[] utf = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+			i += Character.charCount(cp) - 1;
+
+			for (final byte b : utf) {
+				state = feed(state, '%');
+				state = feed(state, HEX.charAt(b >> 4 & 15));
+				state = feed(state, HEX.charAt(b & 15));
+			}
+		}
+
+		return state;
+	}
+
+	private static boolean plain(final char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+			|| "!$&'()*+,-./:;=?@_~[]".indexOf(c) >= 0;
+	}
+
+	private synchronized int step(final int state, final char c) {
+		final BitSet from = seen.get(state);
+		final BitSet to = new BitSet(kind.length);
+
+		for (int i = from.nextSetBit(0); i >= 0; i = from.nextSetBit(i + 1)) {
+			final boolean sep = c == '/' || c == '\\';
+
+			switch (kind[i]) {
+				case CHAR: if (c == arg[i]) to.set(i + 1); break;
+				case ONE: if (c != '/') to.set(i + 1); break;
+				case SET: if (c != '/' && within(sets[arg[i]], c)) to.set(i + 1); break;
+				case STAR: if (c != '/') to.set(i); break;
+				case DEEP: to.set(i); break;
+				case SLASH: case TAIL: if (sep) to.set(i + 1); break;
+				default: break;
+			}
+		}
+
+		final int next = intern(close(to));
+
+		if (c < 128) {
+			rows[state].next[c] = next + 1;
+		}
+
+		return next;
+	}
+
+	private BitSet close(final BitSet set) {
+		// Each node is pushed at most once beyond the seeds
+		final int[] todo = new int[kind.length * 2];
+		int top = 0;
+
+		for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+			todo[top++] = i;
+		}
+
+		while (top > 0) {
+			final int i = todo[--top];
+			final int[] hops;
+
+			switch (kind[i]) {
+				case SPLIT: hops = alts[arg[i]]; break;
+				case JUMP: hops = new int[] { arg[i] }; break;
+				case STAR: case DEEP: case TAIL: hops = new int[] { i + 1 }; break;
+				default: hops = new int[0]; break;
+			}
+
+			for (final int hop : hops) {
+				if (!set.get(hop)) {
+					set.set(hop);
+					todo[top++] = hop;
+				}
+			}
+		}
+
+		return set;
+	}
+
+	private int intern(final BitSet set) {
+		final Integer known = ids.get(set);
+
+		if (known != null) {
+			return known;
+		}
+
+		final int id = seen.size();
+		seen.add(set);
+		ids.put(set, id);
+
+		Row[] table = rows;
+
+		if (id >= table.length) {
+			table = Arrays.copyOf(table, table.length * 2);
+		}
+
+		int done = -1, sure = -1;
+		final BitSet live = new BitSet();
+
+		for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+			if (kind[i] == DONE) {
+				done = done < 0 ? arg[i] : Math.min(done, arg[i]);
+			} else if (rule[i] >= 0) {
+				live.set(rule[i]);
+			}
+
+			if (seal[i]) {
+				sure = sure < 0 ? rule[i] : Math.min(sure, rule[i]);
+			}
+		}
+
+		table[id] = new Row(done, live, sure);
+		rows = table;
+		return id;
+	}
+
+	private static boolean within(final char[] set, final char c) {
+		boolean hit = false;
+
+		for (int i = 1; i < set.length && !hit; i += 2) {
+			hit = c >= set[i] && c <= set[i + 1];
+		}
+
+		return hit != (set[0] == '!');
+	}
+
+	private static final class Row {
+
+		final int[] next = new int[128];
+		final int done;
+		final BitSet live;
+		final int sure;
+
+		Row(
+			final int done,
+			final BitSet live,
+			final int sure
+		) {
+			this.done = done;
+			this.live = live;
+			this.sure = sure;
+		}
+
+	}
+
+	private static final class Home {
+
+		final WebFilePath root;
+		final int state;
+
+		Home(final WebFilePath root, final int state) {
+			this.root = root;
+			this.state = state;
+		}
+
+	}
+
+	private static final class Nodes {
+
+		final List<Integer> kind = new ArrayList<>();
+		final List<Integer> arg = new ArrayList<>();
+		final List<int[]> alts = new ArrayList<>();
+		final List<char[]> sets = new ArrayList<>();
+		final List<Integer> rule = new ArrayList<>();
+
+		int owner = -1;
+
+		int add(final int k, final int a) {
+			kind.add(k);
+			arg.add(a);
+			rule.add(owner);
+			return kind.size() - 1;
+		}
+
+		// Returns where it stopped: the end, or a ',' / '}' closing the current brace
+		int seq(final String glob, int i, final boolean nested) {
+			final int n = glob.length();
+
+			while (i < n) {
+				final char c = glob.charAt(i);
+
+				switch (c) {
+					case '*':
+						if (!nested && i + 1 < n && glob.charAt(i + 1) == '*') {
+							add(DEEP, 0); i += 2;
+						} else {
+							add(STAR, 0); i++;
+						}
+						break;
+					case '?':
+						add(ONE, 0); i++;
+						break;
+					case '\\':
+						if (i + 1 == n) throw new PatternSyntaxException("dangling escape", glob, i);
+						add(CHAR, glob.charAt(i + 1)); i += 2;
+						break;
+					case '[':
+						i = set(glob, i);
+						break;
+					case '/':
+						if (nested) throw new PatternSyntaxException("separator in group", glob, i);
+						add(SLASH, 0); i++;
+						break;
+					case '{':
+						if (nested) throw new PatternSyntaxException("nested group", glob, i);
+						i = group(glob, i);
+						break;
+					case ',':
+					case '}':
+						if (nested) return i;
+						add(CHAR, c); i++;
+						break;
+					default:
+						add(CHAR, c); i++;
+						break;
+				}
+			}
+
+			if (nested) {
+				throw new PatternSyntaxException("unclosed group", glob, i);
+			}
+
+			return i;
+		}
+
+		private int group(final String glob, int i) {
+			final int fork = add(SPLIT, alts.size());
+			final List<Integer> heads = new ArrayList<>();
+			final List<Integer> jumps = new ArrayList<>();
+
+			alts.add(null);
+
+			do {
+				heads.add(kind.size());
+				i = seq(glob, i + 1, true);
+				jumps.add(add(JUMP, 0));
+			} while (glob.charAt(i) == ',');
+
+			for (final int jump : jumps) {
+				arg.set(jump, kind.size());
+			}
+
+			alts.set(arg.get(fork), heads.stream().mapToInt(Integer::intValue).toArray());
+			return i + 1;
+		}
+
+		// [abc], [a-z], [!a] or [^a]; stored as a negation flag followed by ranges
+		private int set(final String glob, int i) {
+			final int n = glob.length();
+			final StringBuilder spec = new StringBuilder();
+			int j = i + 1;
+
+			if (j < n && (glob.charAt(j) == '!' || glob.charAt(j) == '^')) {
+				spec.append('!'); j++;
+			} else {
+				spec.append(' ');
+			}
+
+			for (boolean first = true; j < n && (first || glob.charAt(j) != ']'); first = false) {
+				char lo = glob.charAt(j++);
+				if (lo == '\\' && j < n) lo = glob.charAt(j++);
+				char hi = lo;
+
+				if (j + 1 < n && glob.charAt(j) == '-' && glob.charAt(j + 1) != ']') {
+					hi = glob.charAt(j + 1);
+					if (hi == '\\' && j + 2 < n) hi = glob.charAt(++j + 1);
+					j += 2;
+				}
+
+				spec.append(lo).append(hi);
+			}
+
+			if (j >= n) {
+				throw new PatternSyntaxException("unclosed class", glob, i);
+			}
+
+			add(SET, sets.size());
+			sets.add(spec.toString().toCharArray());
+			return j + 1;
+		}
+
+	}
+
+}
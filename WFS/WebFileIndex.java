@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class WebFileIndex {
+
+	private static final int MAGIC = 0x5746534A;
+
+	// Saves an entry may sit through untaken before it is dropped
+	private static final int AGES = 4;
+
+	private final Path file;
+	private final String root;
+
+	private Map<String, Entry> heap;
+	private ByteBuffer map;
+
+	WebFileIndex(
+		final Path file,
+		final String root
+	) {
+		// One file per root, so file systems sharing the setting keep apart
+		this.file = file.resolveSibling(file.getFileName() + "." + Integer.toHexString(root.hashCode()));
+		this.root = root;
+	}
+
+	// Each entry is handed out once, from then on the listing cache owns it
+	synchronized Entry take(final String path) {
+		return scan().remove(path);
+	}
+
+	// Entries nobody asked for carry over into the next index, until they age out
+	synchronized void save(
+		final Map<String, WebFileClient.Body> bodies
+	) throws IOException {
+		final Map<String, Entry> keep = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, Entry> item : scan().entrySet()) {
+			final Entry seen = item.getValue();
+
+			if (seen.age + 1 < AGES) {
+				keep.put(item.getKey(), new Entry(seen.tags, seen.body(), seen.age + 1));
+			}
+		}
+
+		for (final Map.Entry<String, WebFileClient.Body> body : bodies.entrySet()) {
+			keep.put(body.getKey(), new Entry(body.getValue().tags, body.getValue().data, 0));
+		}
+
+		final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			text(out, root);
+			out.writeInt(keep.size());
+
+			for (final Map.Entry<String, Entry> item : keep.entrySet()) {
+				final Entry entry = item.getValue();
+				final String[] args = entry.tags == null ? new String[0] : entry.tags;
+				final byte[] body = entry.body();
+
+				text(out, item.getKey());
+				out.writeByte(args.length);
+
+				for (final String arg : args) {
+					text(out, arg);
+				}
+
+				out.writeByte(entry.age);
+				out.writeInt(body.length);
+				out.write(body);
+			}
+		}
+
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Only names and offsets are read up front, bodies stay in the mapping until taken
+	private Map<String, Entry> scan() {
+		if (heap != null) {
+			return heap;
+		}
+
+		heap = new HashMap<>();
+
+		try (final FileChannel chan = FileChannel.open(file, StandardOpenOption.READ)) {
+			final MappedByteBuffer buff = chan.map(FileChannel.MapMode.READ_ONLY, 0, chan.size());
+
+			if (buff.remaining() < 8 || buff.getInt() != MAGIC || !root.equals(text(buff))) {
+				return heap;
+			}
+
+			map = buff;
+
+			for (int n = buff.getInt(); n > 0; n--) {
+				final String path = text(buff);
+				final String[] args = new String[buff.get()];
+
+				for (int i = 0; i < args.length; i++) {
+					args[i] = text(buff);
+				}
+
+				final int age = buff.get();
+				final int size = buff.getInt();
+				heap.put(path, new Entry(args.length == 0 ? null : args, buff.position(), size, age));
+				buff.position(buff.position() + size);
+			}
+		} catch (final NoSuchFileException e) {
+			// First run, nothing to warm up from
+		} catch (final IOException | RuntimeException e) {
+			heap.clear();
+		}
+
+		return heap;
+	}
+
+	private static String text(final ByteBuffer buff) {
+		final byte[] data = new byte[buff.getInt()];
+		buff.get(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+
+	private static void text(final DataOutputStream out, final String text) throws IOException {
+		final byte[] data = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	final class Entry {
+
+		final String[] tags;
+		private final int from;
+		private final int size;
+		private final int age;
+		private byte[] body;
+
+		Entry(final String[] tags, final int from, final int size, final int age) {
+			this.tags = tags;
+			this.from = from;
+			this.size = size;
+			this.age = age;
+		}
+
+		Entry(final String[] tags, final byte[] body, final int age) {
+			this(tags, 0, body.length, age);
+			this.body = body;
+		}
+
+		byte[] body() {
+			if (body == null) {
+				body = new byte[size];
+				map.duplicate().position(from).get(body);
+			}
+
+			return body;
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.util.Arrays;
+
+// Recent latencies of one kind of request, a ring of the last SIZE samples
+final class WebFileLatency {
+
+	private static final int SIZE = 256;
+	private static final int WARM = 32;
+
+	private final long[] ring = new long[SIZE];
+	private long[] sort = new long[0];
+	private int next;
+	private int fill;
+	private int news;
+
+	synchronized void add(final long nanos) {
+		ring[next] = nanos;
+		next = (next + 1) % SIZE;
+		fill = Math.min(SIZE, fill + 1);
+		news++;
+	}
+
+	// Nanoseconds at quantile q, or -1 until enough samples came in;
+	// re-sorted every 16 samples rather than on every call
+	synchronized long quantile(final double q) {
+		if (fill < WARM) {
+			return -1;
+		}
+
+		if (news >= 16 || sort.length == 0) {
+			sort = Arrays.copyOf(ring, fill);
+			Arrays.sort(sort);
+			news = 0;
+		}
+
+		return sort[Math.min(sort.length - 1, (int)(q * sort.length))];
+	}
+
+}
@@ -27,32 +27,151 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-final class WebFileLines implements Iterator<String>, AutoCloseable {
+final class WebFileLines implements Iterator<CharSequence>, AutoCloseable {
 
+	private final InputStream feed;
 	private final BufferedReader scan;
 	private final Iterator<String> self;
 
+	// Byte mode: one reusable line view over a growing buffer
+	private final Bytes line;
+	private byte[] buff;
+	private int head;
+	private int fill;
+	private boolean done;
+	private boolean note;
+
 	public WebFileLines(final InputStream stream) {
-		scan = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
-		self = scan.lines().iterator();
+		this(stream, false);
+	}
+
+	public WebFileLines(final InputStream stream, final boolean raw) {
+		feed = stream;
+
+		if (raw) {
+			scan = null;
+			self = null;
+			line = new Bytes();
+			buff = new byte[8192];
+		} else {
+			scan = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+			self = scan.lines().iterator();
+			line = null;
+		}
 	}
 
 	@Override
 	public boolean hasNext() {
-		return self.hasNext();
+		if (self != null) {
+			return self.hasNext();
+		}
+
+		if (!note) {
+			try {
+				note = advance();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		return note;
 	}
 
 	@Override
-	public String next() {
-		return self.next();
+	public CharSequence next() {
+		if (self != null) {
+			return self.next();
+		}
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		note = false;
+		return line;
+	}
+
+	private boolean advance() throws IOException {
+		head = line.next;
+
+		for (int i = head; ; ) {
+			for (; i < fill; i++) {
+				if (buff[i] == '\n') {
+					return emit(head, i, i + 1);
+				}
+			}
+
+			if (done) {
+				return head < fill && emit(head, fill, fill);
+			}
+
+			// Keep the partial line, make room for the rest
+			if (head > 0) {
+				System.arraycopy(buff, head, buff, 0, fill - head);
+				i -= head;
+				fill -= head;
+				head = 0;
+			} else if (fill == buff.length) {
+				buff = Arrays.copyOf(buff, buff.length * 2);
+			}
+
+			final int n = feed.read(buff, fill, buff.length - fill);
+
+			if (n < 0) {
+				done = true;
+			} else {
+				fill += n;
+			}
+		}
+	}
+
+	private boolean emit(final int from, int till, final int next) {
+		if (till > from && buff[till - 1] == '\r') till--;
+		line.from = from;
+		line.till = till;
+		line.next = next;
+		return true;
 	}
 
 	@Override
 	public void close() throws IOException {
-		scan.close();
+		if (scan != null) scan.close(); else feed.close();
+	}
+
+	// Tabs and digits are ASCII, so charAt may expose raw bytes;
+	// only the text that is kept is decoded as UTF-8.
+	private final class Bytes implements CharSequence {
+
+		int from;
+		int till;
+		int next;
+
+		@Override
+		public int length() {
+			return till - from;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			return (char)(buff[from + index] & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return new String(buff, from + start, end - start, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String toString() {
+			return new String(buff, from, till - from, StandardCharsets.UTF_8);
+		}
+
 	}
 
 }
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class WebFileListings {
+
+	private final long life;
+	private final int room;
+
+	private final LinkedHashMap<String, Slot> lru;
+
+	WebFileListings(
+		final long life,
+		final int room
+	) {
+		this.life = life;
+		this.room = room;
+		this.lru = new LinkedHashMap<String, Slot>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Slot> eldest) {
+				return size() > WebFileListings.this.room;
+			}
+		};
+	}
+
+	synchronized WebFileClient.Body get(final String path) {
+		final Slot slot = lru.get(path);
+
+		if (slot == null) {
+			return null;
+		}
+
+		// Expired entries linger, they can still be revalidated
+		return System.currentTimeMillis() - slot.born < life ? slot.body : null;
+	}
+
+	synchronized WebFileClient.Body last(final String path) {
+		final Slot slot = lru.get(path);
+		return slot == null ? null : slot.body;
+	}
+
+	synchronized void put(final String path, final WebFileClient.Body body) {
+		lru.put(path, new Slot(body, System.currentTimeMillis()));
+	}
+
+	synchronized void drop(final String path) {
+		lru.remove(path);
+	}
+
+	synchronized Map<String, WebFileClient.Body> bodies() {
+		final Map<String, WebFileClient.Body> copy = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, Slot> entry : lru.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().body);
+		}
+
+		return copy;
+	}
+
+	private static final class Slot {
+
+		final WebFileClient.Body body;
+		final long born;
+
+		Slot(final WebFileClient.Body body, final long born) {
+			this.body = body;
+			this.born = born;
+		}
+
+	}
+
+}
@@ -0,0 +1,514 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class WebFileMirror {
+
+	// A download writes its part file as bytes arrive, so one this old is abandoned
+	private static final long STALE = 3600_000L;
+
+	private final Path dir;
+	private final long room;
+
+	private LinkedHashMap<String, Long> lru;
+	private long used;
+
+	// Copies open in a stream or channel, by name; eviction passes them over
+	private final Map<String, Integer> lent = new HashMap<>();
+
+	WebFileMirror(
+		final Path dir,
+		final long room
+	) {
+		this.dir = dir;
+		this.room = room;
+	}
+
+	InputStream open(
+		final URI link,
+		final String stamp,
+		final long size,
+		final WebFilePool.Fetch origin
+	) throws IOException {
+		if (size > room || size < 0) {
+			return origin.open();
+		}
+
+		final String name = name(link, stamp);
+		final FileChannel hit = lend(name, size);
+
+		if (hit != null) {
+			// A mapping tops out at 2 GiB, larger copies are read through the channel
+			if (size > Integer.MAX_VALUE) {
+				return new FilterInputStream(Channels.newInputStream(hit)) {
+					private boolean shut;
+
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							if (!shut) {
+								shut = true;
+								back(name);
+							}
+						}
+					}
+				};
+			}
+
+			try (final FileChannel chan = hit) {
+				return new Mapped(name, chan.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			} catch (final IOException | RuntimeException e) {
+				back(name);
+				throw e;
+			}
+		}
+
+		final Path temp;
+		final OutputStream sink;
+
+		// The mirror is an optimisation: if it cannot be written, read straight through
+		try {
+			temp = Files.createTempFile(dir, name, ".part");
+		} catch (final IOException e) {
+			return origin.open();
+		}
+
+		try {
+			sink = Files.newOutputStream(temp);
+		} catch (final IOException e) {
+			drop(temp);
+			return origin.open();
+		}
+
+		try {
+			return new Tee(name, size, temp, sink, origin.open());
+		} catch (final IOException | RuntimeException e) {
+			drop(sink, temp);
+			throw e;
+		}
+	}
+
+	// A channel on the copy, released on close, or null on a miss
+	SeekableByteChannel seek(final URI link, final String stamp, final long size) {
+		final String name = name(link, stamp);
+		final FileChannel hit = lend(name, size);
+
+		return hit == null ? null : new Lent(name, hit);
+	}
+
+	// Stamps are part of the key, so a changed file misses and its old copy ages out;
+	// a hit stays lent until handed back, so eviction cannot delete it under a reader
+	private synchronized FileChannel lend(final String name, final long size) {
+		final Long seen = scan().get(name);
+
+		if (seen == null || seen != size) {
+			return null;
+		}
+
+		final Path file = dir.resolve(name);
+		final FileChannel chan;
+
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			chan = FileChannel.open(file, StandardOpenOption.READ);
+		} catch (final IOException e) {
+			used -= lru.remove(name);
+			return null;
+		}
+
+		lent.merge(name, 1, Integer::sum);
+		return chan;
+	}
+
+	private synchronized void back(final String name) {
+		if (lent.merge(name, -1, Integer::sum) == 0) {
+			lent.remove(name);
+			trim();
+		}
+	}
+
+	private static void drop(final Path temp) {
+		try {
+			Files.deleteIfExists(temp);
+		} catch (final IOException e) {
+			// aged out by the next scan
+		}
+	}
+
+	private static void drop(final OutputStream sink, final Path temp) {
+		try {
+			sink.close();
+		} catch (final IOException e) {
+			// the copy is abandoned anyway
+		}
+
+		drop(temp);
+	}
+
+	private synchronized void store(final String name, final long size, final Path temp) throws IOException {
+		Files.move(temp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		final Long prev = scan().put(name, size);
+		used += size - (prev == null ? 0 : prev);
+		trim();
+	}
+
+	// Oldest first; lent copies wait until their last reader hands them back
+	private void trim() {
+		for (final Iterator<Map.Entry<String, Long>> it = scan().entrySet().iterator(); used > room && it.hasNext(); ) {
+			final Map.Entry<String, Long> entry = it.next();
+
+			if (lent.containsKey(entry.getKey())) {
+				continue;
+			}
+
+			try {
+				Files.deleteIfExists(dir.resolve(entry.getKey()));
+			} catch (final IOException e) {
+				continue; // still mapped by a closed stream not yet collected, try again next time
+			}
+
+			used -= entry.getValue();
+			it.remove();
+		}
+	}
+
+	// Copies from earlier runs are picked up oldest first; part files are only
+	// removed once stale, others may belong to a live download sharing the directory
+	private LinkedHashMap<String, Long> scan() {
+		if (lru != null) {
+			return lru;
+		}
+
+		lru = new LinkedHashMap<>(256, 0.75f, true);
+
+		final List<Path> seen = new ArrayList<>();
+		final long past = System.currentTimeMillis() - STALE;
+
+		try {
+			Files.createDirectories(dir);
+
+			try (final DirectoryStream<Path> kids = Files.newDirectoryStream(dir)) {
+				for (final Path kid : kids) {
+					if (!kid.getFileName().toString().endsWith(".part")) {
+						seen.add(kid);
+					} else if (Files.getLastModifiedTime(kid).toMillis() < past) {
+						drop(kid);
+					}
+				}
+			}
+
+			final Map<Path, FileTime> times = new LinkedHashMap<>();
+			for (final Path kid : seen) times.put(kid, Files.getLastModifiedTime(kid));
+			seen.sort(Comparator.comparing(times::get));
+
+			for (final Path kid : seen) {
+				final long size = Files.size(kid);
+				lru.put(kid.getFileName().toString(), size);
+				used += size;
+			}
+		} catch (final IOException e) {
+			// An unreadable mirror only costs the downloads it would have saved
+		}
+
+		return lru;
+	}
+
+	private static String name(final URI link, final String stamp) {
+		try {
+			final MessageDigest hash = MessageDigest.getInstance("SHA-256");
+			final byte[] data = hash.digest((link + " " + stamp).getBytes(StandardCharsets.UTF_8));
+			final StringBuilder text = new StringBuilder(40);
+
+			for (int i = 0; i < 20; i++) {
+				text.append(Character.forDigit(data[i] >> 4 & 15, 16)).append(Character.forDigit(data[i] & 15, 16));
+			}
+
+			return text.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private final class Mapped extends InputStream {
+
+		private final String name;
+		private final ByteBuffer buff;
+		private boolean shut;
+
+		Mapped(final String name, final ByteBuffer buff) {
+			this.name = name;
+			this.buff = buff;
+		}
+
+		@Override
+		public int read() {
+			return buff.hasRemaining() ? buff.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!buff.hasRemaining()) {
+				return -1;
+			}
+
+			final int take = Math.min(len, buff.remaining());
+			buff.get(b, off, take);
+			return take;
+		}
+
+		@Override
+		public long skip(final long n) {
+			final int take = (int)Math.max(0, Math.min(n, buff.remaining()));
+			buff.position(buff.position() + take);
+			return take;
+		}
+
+		@Override
+		public int available() {
+			return buff.remaining();
+		}
+
+		@Override
+		public void close() {
+			if (!shut) {
+				shut = true;
+				back(name);
+			}
+		}
+
+	}
+
+	private final class Lent implements SeekableByteChannel {
+
+		private final String name;
+		private final FileChannel chan;
+		private boolean shut;
+
+		Lent(final String name, final FileChannel chan) {
+			this.name = name;
+			this.chan = chan;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			return chan.read(dst);
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			return chan.write(src);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return chan.position();
+		}
+
+		@Override
+		public SeekableByteChannel position(final long at) throws IOException {
+			chan.position(at);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return chan.size();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(final long size) throws IOException {
+			chan.truncate(size);
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return chan.isOpen();
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			try {
+				chan.close();
+			} finally {
+				if (!shut) {
+					shut = true;
+					back(name);
+				}
+			}
+		}
+
+	}
+
+	// Writes through to a temporary file, which becomes a mirror once size bytes
+	// went by, whether or not the reader goes on to see the end of the stream;
+	// mirror failures drop the copy, the reader keeps getting the origin's bytes
+	private final class Tee extends FilterInputStream {
+
+		private final String name;
+		private final long size;
+		private final Path temp;
+		private final OutputStream sink;
+		private long seen;
+		private boolean done;
+
+		Tee(
+			final String name,
+			final long size,
+			final Path temp,
+			final OutputStream sink,
+			final InputStream in
+		) {
+			super(in);
+			this.name = name;
+			this.size = size;
+			this.temp = temp;
+			this.sink = sink;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+
+			if (b < 0) {
+				finish();
+			} else if (!done) {
+				try {
+					sink.write(b);
+					seen++;
+				} catch (final IOException e) {
+					abandon();
+				}
+
+				if (seen == size) finish();
+			}
+
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+
+			if (n < 0) {
+				finish();
+			} else if (!done) {
+				try {
+					sink.write(b, off, n);
+					seen += n;
+				} catch (final IOException e) {
+					abandon();
+				}
+
+				if (seen == size) finish();
+			}
+
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final byte[] hop = new byte[(int)Math.min(n, 8192)];
+			final int got = read(hop, 0, hop.length);
+			return Math.max(0, got);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				abandon();
+			}
+		}
+
+		private void abandon() {
+			if (!done) {
+				done = true;
+				drop(sink, temp);
+			}
+		}
+
+		private void finish() {
+			if (done) {
+				return;
+			}
+
+			done = true;
+
+			try {
+				sink.close();
+
+				if (seen == size) {
+					store(name, size, temp);
+					return;
+				}
+			} catch (final IOException e) {
+				// moved away or unwritable: no copy this time
+			}
+
+			drop(temp);
+		}
+
+	}
+
+}
@@ -27,12 +27,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
@@ -44,11 +45,14 @@ public final class WebFilePath implements Path, Globals {
 	private final WebFileSystem fact;
 	private final WebFilePath sire;
 	private final String name;
-	private final URI link;
 	private final WebFileAttributes atts;
 
 	private final int tell;
-	private final WebFilePath self;
+	private final boolean bare;
+	private final boolean kin;
+	private volatile URI link;
+	private WebFilePath self;
+	private int hash;
 
 	WebFilePath(
 		final WebFileSystem fact,
@@ -56,23 +60,39 @@ public final class WebFilePath implements Path, Globals {
 		final String name,
 		final URI link,
 		final WebFileAttributes atts
+	) {
+		this(fact, sire, name, link, atts, link == null, false);
+	}
+
+	// Children of a listed directory defer their URI to the parent's
+	WebFilePath(
+		final WebFileSystem fact,
+		final WebFilePath sire,
+		final String name,
+		final WebFileAttributes atts
+	) {
+		this(fact, sire, name, null, atts, false, true);
+	}
+
+	private WebFilePath(
+		final WebFileSystem fact,
+		final WebFilePath sire,
+		final String name,
+		final URI link,
+		final WebFileAttributes atts,
+		final boolean bare,
+		final boolean kin
 	) {
 		this.fact = fact;
 		this.sire = sire;
 		this.name = name;
 		this.link = link;
 		this.atts = atts;
-
-		if (link != null) {
-			this.tell = 1 + (sire == null ? 0 : sire.tell);
-			this.self = new WebFilePath(fact, sire, name, null, atts);
-		} else {
-			this.tell = 1;
-			this.self = this;
-		}
+		this.bare = bare;
+		this.kin = kin;
+		this.tell = bare ? 1 : 1 + (sire == null ? 0 : sire.tell);
 	}
 
-
 	@Override
 	public WebFileSystem getFileSystem() {
 		return fact;
@@ -106,12 +126,26 @@ public final class WebFilePath implements Path, Globals {
 
 		WebFilePath entry = this;
 		for (int skips = tell - index; --skips > 0; entry = entry.sire);
-		return entry.self;
+		return entry.getFileName();
 	}
 
 	@Override
 	public WebFilePath getFileName() {
-		return self;
+		WebFilePath twin = self;
+
+		if (twin == null) {
+			self = twin = bare ? this : new WebFilePath(fact, sire, name, null, atts, true, false);
+		}
+
+		return twin;
+	}
+
+	String getMemoName() {
+		return name;
+	}
+
+	boolean isBare() {
+		return bare;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -119,8 +153,8 @@ public final class WebFilePath implements Path, Globals {
 		return (A)atts;
 	}
 
-	WebFilePath setMemoAtts(final boolean file, final long size, final FileTime time) {
-		atts.flash(file, size, time);
+	WebFilePath setMemoAtts(final boolean file, final long size, final long secs, final int nano) {
+		atts.flash(file, size, secs, nano);
 		return this;
 	}
 
@@ -161,7 +195,7 @@ public final class WebFilePath implements Path, Globals {
 
 			return wfp.toUri().isAbsolute() ? wfp : new WebFilePath(
 				wfp.fact, wfp.sire, wfp.name,
-				resolve(link, wfp.toString(), wfp.atts.isRegularFile()),
+				resolve(toUri(), wfp.toString(), wfp.atts.isRegularFile()),
 				wfp.getMemoAtts());
 		}
 
@@ -189,7 +223,7 @@ public final class WebFilePath implements Path, Globals {
 			final WebFilePath wfp = (WebFilePath)path;
 
 			return new WebFilePath(wfp.fact, wfp.sire, wfp.name,
-				link.relativize(wfp.toUri()), wfp.getMemoAtts());
+				toUri().relativize(wfp.toUri()), wfp.getMemoAtts());
 		}
 
 		throw new UnsupportedOperationException();
@@ -197,7 +231,13 @@ public final class WebFilePath implements Path, Globals {
 
 	@Override
 	public URI toUri() {
-		return link;
+		URI uri = link;
+
+		if (uri == null && !bare) {
+			link = uri = resolve(sire.toUri(), name, atts.isRegularFile());
+		}
+
+		return uri;
 	}
 
 	@Override
@@ -227,7 +267,7 @@ public final class WebFilePath implements Path, Globals {
 	}
 
 	private int compareTo(final URI link) {
-		final URI dis = this.link;
+		final URI dis = toUri();
 		final URI dat = link;
 
 		return dis == null ? dat == null ? 0 : -1 : dat == null ? +1 :
@@ -238,8 +278,17 @@ public final class WebFilePath implements Path, Globals {
 		return compareTo(link) == 0;
 	}
 
+	// Two listed children match on parent and name, without building either URI
 	private boolean compareEx(final WebFilePath path) {
-		return fact == path.fact ? compareTo(path) == 0 : false;
+		if (fact != path.fact) {
+			return false;
+		}
+
+		if (kin && path.kin && atts.isRegularFile() == path.atts.isRegularFile()) {
+			return name.equals(path.name) && sire.equals(path.sire);
+		}
+
+		return compareTo(path) == 0;
 	}
 
 	@Override
@@ -251,14 +300,51 @@ public final class WebFilePath implements Path, Globals {
 			false;
 	}
 
+	// Folds the path's names onto the parent's, so a listed child hashes
+	// like a path that was given its URI up front, yet builds no URI
 	@Override
 	public int hashCode() {
-		return link == null ? name.hashCode() : link.hashCode();
+		if (bare) {
+			return name.hashCode();
+		}
+
+		int h = hash;
+
+		if (h == 0) {
+			hash = h = kin ? fold(sire.hashCode(), name) : fold(0, link.getSchemeSpecificPart());
+		}
+
+		return h;
 	}
 
+	// Empty and dot names are skipped, as the URI comparison ignores them
+	private static int fold(int h, final String path) {
+		int seg = 0;
+		int len = 0;
+
+		for (int i = 0, n = path.length(); i <= n; i++) {
+			final char c = i < n ? path.charAt(i) : '/';
+
+			if (c != '/') {
+				seg = 31 * seg + c;
+				len++;
+			} else {
+				if (len > 1 || len == 1 && seg != '.') h = 31 * h + seg;
+				seg = 0;
+				len = 0;
+			}
+		}
+
+		return h;
+	}
+
+	// Leaves the URI of a listed child uncached
 	@Override
 	public String toString() {
-		return link == null ? name : link.toString();
+		final URI uri = link;
+
+		return bare ? name : uri != null ? uri.toString()
+			: resolve(sire.toUri(), name, atts.isRegularFile()).toString();
 	}
 
 	//
@@ -269,13 +355,21 @@ public final class WebFilePath implements Path, Globals {
 	}
 
 	@Override
-	public WatchKey register(final WatchService watch, final WatchEvent.Kind<?>... evts) {
-		throw new UnsupportedOperationException();
+	public WatchKey register(final WatchService watch, final WatchEvent.Kind<?>... evts) throws IOException {
+		return register(watch, evts, new WatchEvent.Modifier[0]);
 	}
 
 	@Override
-	public WatchKey register(final WatchService watch, final WatchEvent.Kind<?>[] evts, final WatchEvent.Modifier... mods) {
-		throw new UnsupportedOperationException();
+	public WatchKey register(final WatchService watch, final WatchEvent.Kind<?>[] evts, final WatchEvent.Modifier... mods) throws IOException {
+		if (!(watch instanceof WebFileWatcher)) {
+			throw new ProviderMismatchException();
+		}
+
+		if (!fact.atts(this).isDirectory()) {
+			throw new NotDirectoryException(toString());
+		}
+
+		return ((WebFileWatcher)watch).register(this, evts, mods);
 	}
 
 }
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.regex.Pattern;
+
+public final class WebFilePathMatcher implements PathMatcher, DirectoryStream.Filter<Path> {
+
+	private final String spec;
+	private final Pattern rex;
+	private final WebFileGlob glob;
+
+	WebFilePathMatcher(
+		final String spec,
+		final Pattern rex
+	) {
+		this(spec, rex, null);
+	}
+
+	WebFilePathMatcher(
+		final String spec,
+		final WebFileGlob glob
+	) {
+		this(spec, null, glob);
+	}
+
+	private WebFilePathMatcher(
+		final String spec,
+		final Pattern rex,
+		final WebFileGlob glob
+	) {
+		this.spec = spec;
+		this.rex = rex;
+		this.glob = glob;
+	}
+
+	@Override
+	public boolean matches(final Path path) {
+		if (glob == null) {
+			return rex.matcher(path.toString()).matches();
+		}
+
+		return glob.accepts(glob.run(path));
+	}
+
+	@Override
+	public boolean accept(final Path path) {
+		return matches(path);
+	}
+
+	String getSpec() {
+		return spec;
+	}
+
+	@Override
+	public String toString() {
+		return spec;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.regex.Pattern;
+
+// Ordered include/exclude rules; the first rule matching a path decides it
+public final class WebFilePathRules implements PathMatcher, DirectoryStream.Filter<Path> {
+
+	private final String[] spec;
+	private final boolean[] keep;
+	private final Pattern[] rex;
+	private final int[] slot;
+	private final int[] rule;
+	private final WebFileGlob glob;
+
+	WebFilePathRules(
+		final String[] spec,
+		final boolean[] keep,
+		final Pattern[] rex,
+		final int[] slot,
+		final int[] rule,
+		final WebFileGlob glob
+	) {
+		this.spec = spec;
+		this.keep = keep;
+		this.rex = rex;
+		this.slot = slot;
+		this.rule = rule;
+		this.glob = glob;
+	}
+
+	// Index of the first rule matching the path, or -1
+	public int find(final Path path) {
+		final int state = glob != null ? glob.run(path) : 0;
+		final int hit = glob != null && glob.rule(state) >= 0 ? rule[glob.rule(state)] : -1;
+		String text = null;
+
+		// Only regexes ordered ahead of the glob hit can overrule it
+		for (int i = 0; i < (hit < 0 ? rex.length : hit); i++) {
+			if (rex[i] != null) {
+				if (text == null) text = path.toString();
+				if (rex[i].matcher(text).matches()) return i;
+			}
+		}
+
+		return hit;
+	}
+
+	@Override
+	public boolean matches(final Path path) {
+		final int hit = find(path);
+		return hit >= 0 && keep[hit];
+	}
+
+	@Override
+	public boolean accept(final Path path) {
+		return matches(path);
+	}
+
+	// Whether nothing beneath the directory can be included
+	public boolean prunes(final Path dir) {
+		final int state = glob != null ? glob.run(dir) : 0;
+		final int sure = glob != null && glob.sure(state) >= 0 ? rule[glob.sure(state)] : keep.length;
+
+		if (sure < keep.length && keep[sure]) {
+			return false;
+		}
+
+		for (int i = 0; i < sure; i++) {
+			if (keep[i] && (rex[i] != null || glob.live(state, slot[i]))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public int size() {
+		return spec.length;
+	}
+
+	public String getRule(final int index) {
+		return spec[index];
+	}
+
+	public boolean isInclude(final int index) {
+		return keep[index];
+	}
+
+	@Override
+	public String toString() {
+		return String.join(" ", spec);
+	}
+
+}
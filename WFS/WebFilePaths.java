@@ -24,36 +24,69 @@
 package WFS;
 
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 
 final class WebFilePaths implements Iterator<Path>, DirectoryStream<Path> {
 
 	private final WebFileLines self;
-	private final Function<String, Path> cast;
+	private final Function<CharSequence, Path> cast;
+	private final DirectoryStream.Filter<? super Path> sift;
+	private Path head;
 
 	public WebFilePaths(
 		final WebFileLines origin,
-		final Function<String, Path> redeem
+		final Function<CharSequence, Path> redeem
+	) {
+		this(origin, redeem, null);
+	}
+
+	public WebFilePaths(
+		final WebFileLines origin,
+		final Function<CharSequence, Path> redeem,
+		final DirectoryStream.Filter<? super Path> filter
 	) {
 		self = origin;
 		cast = redeem;
+		sift = filter;
 	}
 
 	@Override
 	public boolean hasNext() {
-		return self.hasNext();
+		while (head == null && self.hasNext()) {
+			final Path path = cast.apply(self.next());
+			if (pass(path)) head = path;
+		}
+
+		return head != null;
 	}
 
 	@Override
 	public Path next() {
-		return cast.apply(self.next());
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Path path = head;
+		head = null;
+		return path;
+	}
+
+	private boolean pass(final Path path) {
+		try {
+			return sift == null || sift.accept(path);
+		} catch (final IOException e) {
+			throw new DirectoryIteratorException(e);
+		}
 	}
 
+	// Unfiltered, the self entry still has to memoize its attributes
 	public WebFilePaths skip() {
-		if (hasNext()) next();
+		if (head == null && self.hasNext()) cast.apply(self.next());
 		return this;
 	}
 
@@ -0,0 +1,263 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class WebFilePool {
+
+	interface Fetch {
+		InputStream open() throws IOException;
+	}
+
+	private final Semaphore lane;
+	private final Queue<CompletableFuture<Void>> seats = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder reqs = new LongAdder();
+	private final LongAdder errs = new LongAdder();
+	private final LongAdder lags = new LongAdder();
+	private final LongAdder byts = new LongAdder();
+	private final LongAdder same = new LongAdder();
+	private final LongAdder join = new LongAdder();
+	private final LongAdder redo = new LongAdder();
+	private final LongAdder twin = new LongAdder();
+	private final LongAdder wire = new LongAdder();
+	private final AtomicLong busy = new AtomicLong();
+	private final AtomicLong peak = new AtomicLong();
+
+	WebFilePool(
+		final int size
+	) {
+		this.lane = new Semaphore(Math.max(1, size), true);
+	}
+
+	// A lane is one connection: held from connect until the body is drained
+	// or closed, when the JDK can hand the socket to the next request.
+	// The clock stops at the headers and starts once the lane is held,
+	// so neither queueing nor body transfer is counted as latency.
+	InputStream lease(final WebFileLatency lag, final Fetch fetch) throws IOException {
+		acquire();
+
+		final long t0 = System.nanoTime();
+
+		try {
+			final InputStream body = fetch.open();
+			lag.add(System.nanoTime() - t0);
+			return new Tally(body);
+		} catch (final SocketTimeoutException e) {
+			// Timeouts count too, so a slowing server widens its own timeout
+			lag.add(System.nanoTime() - t0);
+			fail();
+			throw e;
+		} catch (final IOException|RuntimeException e) {
+			fail();
+			throw e;
+		}
+	}
+
+	// The non-blocking acquire: completes once a lane is held, which the
+	// caller gives back through hold() on success, or fail() otherwise
+	CompletableFuture<Void> enter() {
+		reqs.increment();
+
+		if (lane.tryAcquire()) {
+			seated();
+			return CompletableFuture.completedFuture(null);
+		}
+
+		lags.increment();
+
+		final CompletableFuture<Void> seat = new CompletableFuture<>();
+		seats.add(seat);
+
+		// A lane freed before the seat was queued went back to the semaphore
+		if (lane.tryAcquire()) {
+			if (seats.remove(seat)) {
+				seated();
+				seat.complete(null);
+			} else {
+				pass(); // the seat was handed a lane meanwhile
+			}
+		}
+
+		return seat;
+	}
+
+	InputStream hold(final InputStream body) {
+		return new Tally(body);
+	}
+
+	void fail() {
+		errs.increment();
+		release();
+	}
+
+	private void acquire() throws IOException {
+		reqs.increment();
+
+		if (!lane.tryAcquire()) {
+			lags.increment();
+
+			try {
+				lane.acquire();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		seated();
+	}
+
+	private void seated() {
+		peak.accumulateAndGet(busy.incrementAndGet(), Math::max);
+	}
+
+	int available() {
+		return lane.availablePermits();
+	}
+
+	// Counts bytes as they come off the socket, before any decoding
+	InputStream wire(final InputStream origin) {
+		return new FilterInputStream(origin) {
+			@Override
+			public int read() throws IOException {
+				final int b = super.read();
+				if (b >= 0) wire.increment();
+				return b;
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				final int n = super.read(b, off, len);
+				if (n > 0) wire.add(n);
+				return n;
+			}
+		};
+	}
+
+	void fresh() {
+		same.increment();
+	}
+
+	void joined() {
+		join.increment();
+	}
+
+	void retried() {
+		redo.increment();
+	}
+
+	void hedged() {
+		twin.increment();
+	}
+
+	void release() {
+		busy.decrementAndGet();
+		pass();
+	}
+
+	// Queued async callers go first, as blocked threads can wait on the semaphore
+	private void pass() {
+		final CompletableFuture<Void> seat = seats.poll();
+
+		if (seat == null) {
+			lane.release();
+		} else {
+			seated();
+			seat.complete(null);
+		}
+	}
+
+	Map<String, Long> toMap() {
+		final Map<String, Long> map = new LinkedHashMap<>();
+		map.put("requests", reqs.sum());
+		map.put("failures", errs.sum());
+		map.put("waits",    lags.sum());
+		map.put("inflight", busy.get());
+		map.put("peak",     peak.get());
+		map.put("bytes",    byts.sum());
+		map.put("wireBytes", wire.sum());
+		map.put("notModified", same.sum());
+		map.put("shared",   join.sum());
+		map.put("retries",  redo.sum());
+		map.put("hedges",   twin.sum());
+		return map;
+	}
+
+	// Counts bytes as the caller reads them, after any decoding,
+	// and gives the lane back at the end of the body or on close
+	private final class Tally extends FilterInputStream {
+
+		private final AtomicBoolean held = new AtomicBoolean(true);
+
+		Tally(final InputStream origin) {
+			super(origin);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) byts.increment(); else free();
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) byts.add(n); else if (n < 0) free();
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				free();
+			}
+		}
+
+		private void free() {
+			if (held.compareAndSet(true, false)) {
+				release();
+			}
+		}
+
+	}
+
+}
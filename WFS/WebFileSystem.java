@@ -23,45 +23,91 @@
  */
 package WFS;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystem;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.nio.file.spi.FileSystemProvider;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import WFS.util.Globals;
 
 public final class WebFileSystem extends FileSystem implements Globals {
 
+	// The index is also saved after this many fresh listings, or this long after the last save,
+	// since file systems opened through Paths.get are rarely closed
+	private static final int FLUSH = 256;
+	private static final long FLUSH_MS = 60_000L;
+
 	private final WebFileSystemProvider fact;
 	private final WebFileAttributes none;
 	private final WebFilePath root;
 	private final WebFileClient stub;
+	private final WebFileClientConfig conf;
+	private final WebFileCache heap;
+	private final WebFileListings dirs;
+	private final WebFileIndex keep;
+	private final WebFileMirror copy;
+	private final Map<String, WebFilePathMatcher> mats = new LinkedHashMap<String, WebFilePathMatcher>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, WebFilePathMatcher> eldest) {
+			return size() > 64;
+		}
+	};
+	private final AtomicInteger news = new AtomicInteger();
+	private volatile long saved = System.currentTimeMillis();
+	private ExecutorService pool;
+	private Executor exec;
 
 	WebFileSystem(
 		final WebFileSystemProvider fact,
-		final URI root
+		final URI root,
+		final Map<String, ?> env
 	) {
 		this.fact = fact;
 		this.none = new WebFileAttributes(false, -1, FileTime.from(Instant.now()));
 		this.root = new WebFilePath(this, null, "", root, none);
-		this.stub = new WebFileClient(new WebFileClientConfig.Builder()
+		this.conf = new WebFileClientConfig.Builder()
+			.setOptions(env)
 			.setServerBaseUrl(root.getRawSchemeSpecificPart().substring(root.isOpaque() ? 0 : 1))
-			.toConfig());
+			.toConfig();
+		this.stub = new WebFileClient(conf);
+		this.heap = new WebFileCache(conf.cacheSZ, conf.blockSZ);
+		this.dirs = conf.listTO == 0 ? null : new WebFileListings(conf.listTO, conf.listSZ);
+		this.copy = conf.mirror == null ? null : new WebFileMirror(conf.mirror, conf.copySZ);
+		this.keep = dirs == null || conf.index == null ? null : new WebFileIndex(conf.index, root.toString());
 	}
 
 	@Override
@@ -77,6 +123,46 @@ public final class WebFileSystem extends FileSystem implements Globals {
 	@Override
 	public void close() throws IOException {
 		fact.ridFileSystem(root.toUri());
+
+		synchronized (this) {
+			if (pool != null) pool.shutdownNow();
+		}
+
+		if (keep != null) {
+			keep.save(dirs.bodies());
+		}
+	}
+
+	// Counts a freshly fetched listing towards the next save of the index
+	private void fresh() {
+		if (keep == null) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		if (news.incrementAndGet() < FLUSH && now - saved < FLUSH_MS) {
+			return;
+		}
+
+		// Whoever resets the count does the save
+		if (news.getAndSet(0) == 0) {
+			return;
+		}
+
+		saved = now;
+
+		try {
+			pool().execute(() -> {
+				try {
+					keep.save(dirs.bodies());
+				} catch (final IOException e) {
+					// the next save, or close, tries again
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			// closing, which saves anyway
+		}
 	}
 
 	@Override
@@ -125,39 +211,290 @@ public final class WebFileSystem extends FileSystem implements Globals {
 			return root;
 		}
 
-		try (final WebFilePaths ping = list(uri)) {
-			return ping.next();
+		try {
+			return find(uri);
 		} catch (final IOException|NoSuchElementException e) {
 			return new WebFilePath(this, null, "", uri, none);
 		}
 	}
 
+	private WebFilePath find(final URI uri) throws IOException {
+		final String home = root.toUri().getRawSchemeSpecificPart();
+		final String ssp = uri.getRawSchemeSpecificPart();
+		final int end = ssp.endsWith("/") ? ssp.length() - 1 : ssp.length();
+		final int cut = ssp.lastIndexOf('/', end - 1) + 1;
+
+		// Without a listing cache the parent costs more than a ping
+		if (dirs == null || cut < home.length() || !ssp.startsWith(home)) {
+			try (final WebFilePaths ping = list(uri)) {
+				return (WebFilePath)ping.next();
+			}
+		}
+
+		final URI base = URI.create(uri.getScheme() + ':' + ssp.substring(0, cut));
+		final String path = root.toUri().relativize(base).toString();
+		final String dsp = uri.getSchemeSpecificPart();
+		final int tip = dsp.endsWith("/") ? dsp.length() - 1 : dsp.length();
+		final String name = dsp.substring(dsp.lastIndexOf('/', tip - 1) + 1, tip);
+		final Function<CharSequence, Path> cast = parse(null, base, path);
+
+		// Raw lines expose UTF-8 bytes as chars, so compare like for like
+		final String seek = conf.rawIO
+			? new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1)
+			: name;
+
+		try (final WebFileLines sibs = lines(path)) {
+			if (sibs.hasNext()) sibs.next();
+
+			while (sibs.hasNext()) {
+				final CharSequence line = sibs.next();
+
+				if (heads(line, seek)) {
+					return (WebFilePath)cast.apply(line);
+				}
+			}
+		}
+
+		throw new NoSuchElementException(name);
+	}
+
 	@Override
-	public PathMatcher getPathMatcher(final String tbd) {
-		final Pattern rex = pattern(tbd);
+	public WebFilePathMatcher getPathMatcher(final String tbd) {
+		synchronized (mats) {
+			WebFilePathMatcher wpm = mats.get(tbd);
+
+			if (wpm == null) {
+				mats.put(tbd, wpm = tbd.startsWith("glob:")
+					? new WebFilePathMatcher(tbd, WebFileGlob.compile(tbd.substring(5)))
+					: new WebFilePathMatcher(tbd, pattern(tbd)));
+			}
 
-		return path -> rex.matcher(path.toString()).matches();
+			return wpm;
+		}
+	}
+
+	// Rules are tried in order: "+" includes, "-" excludes, and no sign includes
+	public WebFilePathRules getPathRules(final String... tbd) {
+		final String[] spec = new String[tbd.length];
+		final boolean[] keep = new boolean[tbd.length];
+		final Pattern[] rex = new Pattern[tbd.length];
+		final int[] slot = new int[tbd.length];
+		final List<String> globs = new ArrayList<>();
+		final List<Integer> rule = new ArrayList<>();
+
+		for (int i = 0; i < tbd.length; i++) {
+			final boolean sign = tbd[i].startsWith("+") || tbd[i].startsWith("-");
+			final String expr = sign ? tbd[i].substring(1) : tbd[i];
+
+			spec[i] = tbd[i];
+			keep[i] = !tbd[i].startsWith("-");
+
+			// Globs share one automaton, regexes are tried on their own
+			if (expr.startsWith("glob:")) {
+				slot[i] = globs.size();
+				globs.add(expr.substring(5));
+				rule.add(i);
+			} else {
+				slot[i] = -1;
+				rex[i] = pattern(expr);
+			}
+		}
+
+		return new WebFilePathRules(spec, keep, rex, slot,
+			rule.stream().mapToInt(Integer::intValue).toArray(),
+			globs.isEmpty() ? null : WebFileGlob.compile(globs));
+	}
+
+	public Stream<Path> walk(final Path start) {
+		return walk(start, conf.walkMax);
+	}
+
+	public Stream<Path> walk(final Path start, final int depth) {
+		return walk(start, depth, null);
+	}
+
+	public Stream<Path> walk(final Path start, final WebFilePathRules pick) {
+		return walk(start, conf.walkMax, pick);
+	}
+
+	// Only paths the rules include are streamed, and pruned directories are never listed
+	public Stream<Path> walk(final Path start, final int depth, final WebFilePathRules pick) {
+		final WebFileWalker walk = new WebFileWalker(this, pool(), (WebFilePath)start, depth, pick);
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walk,
+			Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(walk::close);
+	}
+
+	// Request, traffic and latency counters of the client behind this file system
+	public Map<String, Long> metrics() {
+		return stub.metrics();
+	}
+
+	// The non-blocking client, on the same connection lanes and counters
+	public WebFileClientAsync async() {
+		return stub.async();
+	}
+
+	private synchronized Executor pool() {
+		if (exec != null) {
+			return exec;
+		}
+
+		pool = conf.loom ? loom() : null;
+
+		if (pool != null) {
+			// Virtual threads are unbounded, so walkPar caps the listings in flight
+			final Semaphore gate = new Semaphore(conf.walkPar);
+
+			return exec = task -> pool.execute(() -> {
+				gate.acquireUninterruptibly();
+
+				try {
+					task.run();
+				} finally {
+					gate.release();
+				}
+			});
+		}
+
+		final AtomicInteger tick = new AtomicInteger();
+
+		pool = Executors.newFixedThreadPool(conf.walkPar, task -> {
+			final Thread t = new Thread(task, "webfs-walk-" + tick.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+
+		return exec = pool;
+	}
+
+	// Looked up reflectively, the platform pool remains the fallback before 21
+	private static ExecutorService loom() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			return null;
+		}
 	}
 
 	WebFilePaths list(final WebFilePath node) throws IOException {
 		return list(node, node.toUri()).skip();
 	}
 
+	WebFilePaths list(final WebFilePath node, final DirectoryStream.Filter<? super Path> filter) throws IOException {
+		final URI base = node.toUri();
+		final String path = root.toUri().relativize(base).toString();
+
+		// A hint only, servers that do not know it send everything
+		final String hint = filter instanceof WebFilePathMatcher
+			? path + "?match=" + URLEncoder.encode(((WebFilePathMatcher)filter).getSpec(), StandardCharsets.UTF_8)
+			: path;
+
+		return new WebFilePaths(lines(hint), parse(node, base, path), filter).skip();
+	}
+
 	WebFilePaths list(final URI base) throws IOException {
 		return list(null, base);
 	}
 
 	private WebFilePaths list(final WebFilePath node, final URI base) throws IOException {
-		final WebFilePath sire = node;
 		final String path = root.toUri().relativize(base).toString();
 
-		return new WebFilePaths(stub.list(path), line -> {
-			final String[] args = line.split("\\t", -1);
-			final String part = xl8(args, 0, WebFileSystem::name);
-			final FileTime time = xl8(args, 1, WebFileSystem::time);
-			final long size = xl8(args, 2, WebFileSystem::size);
+		return new WebFilePaths(lines(path), parse(node, base, path));
+	}
+
+	// The same body back means the server answered 304
+	WebFileClient.Body poll(final WebFilePath node, final WebFileClient.Body seen) throws IOException {
+		final String path = root.toUri().relativize(node.toUri()).toString();
+
+		if (dirs == null) {
+			return stub.fetch(path, seen);
+		}
+
+		// Revalidates the cached body, which may be newer than what the watcher saw
+		final WebFileClient.Body body = stub.fetch(path, dirs.last(path));
+		dirs.put(path, body);
+		return body;
+	}
 
-			if (part == null || args.length > 3) {
+	WebFilePaths list(final WebFilePath node, final WebFileClient.Body body) throws IOException {
+		final URI base = node.toUri();
+		final String path = root.toUri().relativize(base).toString();
+
+		return new WebFilePaths(new WebFileLines(new ByteArrayInputStream(body.data), conf.rawIO), parse(node, base, path)).skip();
+	}
+
+	private WebFileLines lines(final String path) throws IOException {
+		if (dirs == null) {
+			return stub.list(path);
+		}
+
+		WebFileClient.Body body = dirs.get(path);
+
+		if (body == null && keep != null) {
+			body = warm(path);
+		}
+
+		if (body == null) {
+			final WebFileClient.Body last = dirs.last(path);
+			body = stub.fetch(path, last);
+			dirs.put(path, body);
+			if (body != last) fresh();
+		}
+
+		return new WebFileLines(new ByteArrayInputStream(body.data), conf.rawIO);
+	}
+
+	// Served from the index at once, revalidated behind the caller's back
+	private WebFileClient.Body warm(final String path) {
+		final WebFileIndex.Entry seen = keep.take(path);
+
+		if (seen == null) {
+			return null;
+		}
+
+		final WebFileClient.Body body = new WebFileClient.Body(seen.body(), seen.tags);
+		dirs.put(path, body);
+
+		try {
+			pool().execute(() -> {
+				try {
+					final WebFileClient.Body next = stub.fetch(path, body);
+					dirs.put(path, next);
+					if (next != body) fresh();
+				} catch (final IOException e) {
+					dirs.drop(path);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			dirs.drop(path);
+		}
+
+		return body;
+	}
+
+	private Function<CharSequence, Path> parse(final WebFilePath node, final URI base, final String path) {
+		final WebFilePath sire = node;
+		// Lookups without a parent only ever cast a single line
+		final WebFileColumns[] cols = { new WebFileColumns(sire == null ? 1 : WebFileColumns.ROOM) };
+
+		return line -> {
+			final int span = line.length();
+			final int tab1 = tab(line, 0, span);
+			final int tab2 = tab(line, tab1 + 1, span);
+
+			if (tab(line, tab2 + 1, span) < span) {
+				throw new ArrayStoreException();
+			}
+
+			final String part = name(line, 0, tab1);
+			final int from = lead(line, tab1 + 1, tab2);
+			final int till = tail(line, from, tab2);
+			final long secs = from < till ? second(line, from, till) : 0;
+			final int nano = from < till ? fraction(line, from, till) : 0;
+			final long size = size(line, tab2 + 1, span);
+
+			if (part == null) {
 				throw new ArrayStoreException();
 			}
 
@@ -166,7 +503,7 @@ public final class WebFileSystem extends FileSystem implements Globals {
 
 			if (part.equals(".")) {
 				if (sire != null) {
-					return sire.setMemoAtts(file, size, time);
+					return sire.setMemoAtts(file, size, secs, nano);
 				}
 
 				int s = path.lastIndexOf('/') + 1;
@@ -182,15 +519,30 @@ public final class WebFileSystem extends FileSystem implements Globals {
 				name = part;
 			}
 
-			final URI link = resolve(base, part, file);
+			if (cols[0].isFull()) {
+				cols[0] = new WebFileColumns(WebFileColumns.ROOM);
+			}
 
-			return new WebFilePath(this, sire, name, link,
-				new WebFileAttributes(file, size, time));
-		});
+			final WebFileAttributes atts = cols[0].add(file, size, secs, nano);
+
+			// Listed children derive their URI from the parent's on demand
+			return sire != null
+				? new WebFilePath(this, sire, name, atts)
+				: new WebFilePath(this, sire, name, resolve(base, part, file), atts);
+		};
 	}
 
 	WebFileAttributes atts(final WebFilePath node) throws IOException {
-		final WebFileAttributes wfa = node.getMemoAtts();
+		WebFileAttributes wfa = node.getMemoAtts();
+
+		// The path may have shown up since it was resolved
+		if (!root.equals(node) && wfa == none && dirs != null) {
+			try {
+				wfa = find(node.toUri()).getMemoAtts();
+			} catch (final NoSuchElementException e) {
+				wfa = none;
+			}
+		}
 
 		// Satisfy Files.exists(Path) logic
 		if (!root.equals(node) && wfa == none) {
@@ -203,30 +555,91 @@ public final class WebFileSystem extends FileSystem implements Globals {
 	InputStream file(final WebFilePath node) throws IOException {
 		final URI base = node.toUri();
 		final String path = root.toUri().relativize(base).toString();
+		final WebFileAttributes wfa = node.getMemoAtts();
+
+		// Unlisted paths have nothing to validate cached blocks against
+		if (wfa == none || !wfa.isRegularFile()) {
+			return stub.file(path);
+		}
+
+		final String stamp = wfa.lastModifiedTime() + "/" + wfa.size();
+
+		// Mirrored files are in the page cache already, the block cache would only duplicate them
+		if (copy != null) {
+			return copy.open(base, stamp, wfa.size(), () -> stub.file(path));
+		}
+
+		return heap.open(base, stamp, wfa.size(), () -> stub.file(path));
+	}
+
+	InputStream part(final WebFilePath node, final long from, final long till) throws IOException {
+		final URI base = node.toUri();
+		final String path = root.toUri().relativize(base).toString();
+
+		return stub.file(path, from, till);
+	}
+
+	SeekableByteChannel seek(final WebFilePath node) throws IOException {
+		final WebFileAttributes wfa = atts(node);
+
+		if (!wfa.isRegularFile()) {
+			throw new IOException(node + " is not a file");
+		}
+
+		// A miss stays on ranges: the caller may want a few bytes of a huge file
+		final SeekableByteChannel hit = copy == null ? null
+			: copy.seek(node.toUri(), wfa.lastModifiedTime() + "/" + wfa.size(), wfa.size());
+
+		if (hit != null) {
+			return hit;
+		}
 
-		return stub.file(path);
+		return new WebFileChannel(this, node, wfa.size(), conf.aheadSZ);
 	}
 
 	//
 
-	private static boolean xl8(final String[] a, final int i) {
-		return a.length > i && !(a[i] = a[i].trim()).isEmpty();
+	// Hand-rolled, a listing may hold 100k+ lines
+	private static boolean heads(final CharSequence s, final String name) {
+		final int n = name.length();
+
+		if (s.length() < n || (s.length() > n && s.charAt(n) != '\t')) {
+			return false;
+		}
+
+		for (int i = 0; i < n; i++) {
+			if (s.charAt(i) != name.charAt(i)) return false;
+		}
+
+		return true;
+	}
+
+	private static int tab(final CharSequence s, final int from, final int till) {
+		int i = from;
+		while (i < till && s.charAt(i) != '\t') i++;
+		return Math.min(i, till);
 	}
 
-	private static <T> T xl8(final String[] a, final int i, final Function<String, T> f) {
-		return f.apply(xl8(a, i) ? a[i] : null);
+	private static int lead(final CharSequence s, int from, final int till) {
+		while (from < till && s.charAt(from) <= ' ') from++;
+		return from;
 	}
 
-	private static String name(final String s) {
-		return s;
+	private static int tail(final CharSequence s, final int from, int till) {
+		while (till > from && s.charAt(till - 1) <= ' ') till--;
+		return till;
 	}
 
-	private static FileTime time(final String s) {
-		return s == null ? FileTime.fromMillis(0) : FileTime.from(Instant.parse(s));
+	private static String name(final CharSequence s, int from, int till) {
+		from = lead(s, from, till);
+		till = tail(s, from, till);
+		return from < till ? s.subSequence(from, till).toString() : null;
 	}
 
-	private static long size(final String s) {
-		return s == null || "-".equals(s) ? -1 : Long.parseUnsignedLong(s);
+	private long size(final CharSequence s, int from, int till) {
+		from = lead(s, from, till);
+		till = tail(s, from, till);
+		return from < till ? extent(s, from, till) : -1;
 	}
 
 	//
@@ -248,7 +661,7 @@ public final class WebFileSystem extends FileSystem implements Globals {
 
 	@Override
 	public WatchService newWatchService() {
-		throw new UnsupportedOperationException();
+		return new WebFileWatcher(this, conf.pollTO);
 	}
 
 }
@@ -26,7 +26,6 @@ package WFS;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.channels.NotYetBoundException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessMode;
 import java.nio.file.CopyOption;
@@ -39,20 +38,23 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.ProviderMismatchException;
 import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.spi.FileSystemProvider;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import WFS.util.Globals;
 
 public final class WebFileSystemProvider extends FileSystemProvider implements Globals {
 
-	private final Map<String, WebFileSystem> cache = new HashMap<>();
+	// Reads are lock-free; only creation serializes on the map
+	private final ConcurrentMap<String, WebFileSystem> cache = new ConcurrentHashMap<>();
 
 	@Override
 	public String getScheme() {
@@ -60,60 +62,71 @@ public final class WebFileSystemProvider extends FileSystemProvider implements G
 	}
 
 	private WebFileSystem mapFileSystem(final URI uri, final int crud) {
+		return mapFileSystem(uri, crud, null);
+	}
+
+	private WebFileSystem mapFileSystem(final URI uri, final int crud, final Map<String, ?> env) {
 		if (neq(getScheme(), uri.getScheme()))
 			throw new ProviderMismatchException();
 		if (crud > 1 || (crud == 1 && cache.isEmpty()))
 			return null;
 
-		String ssp = uri.getRawSchemeSpecificPart();
-		WebFileSystem wfs = cache.get(ssp);
+		final String ssp = uri.getRawSchemeSpecificPart();
+		WebFileSystem wfs = findFileSystem(ssp);
 
-		if (wfs == null) {
-			for (Map.Entry<String, WebFileSystem> entry : cache.entrySet()) {
-				final String tbd = entry.getKey();
+		if (crud == 1)
+			return wfs;
 
-				if (ssp.startsWith(tbd) && ssp.charAt(tbd.length()) == '/') {
-					wfs = entry.getValue();
-					break;
-				}
-			}
-		}
+		synchronized (cache) {
+			if (wfs != null || (wfs = findFileSystem(ssp)) != null)
+				throw new FileSystemAlreadyExistsException(ssp);
 
-		if (crud == 1)
+			cache.put(ssp, wfs = new WebFileSystem(this, uri, env));
 			return wfs;
-		if (wfs != null)
-			throw new FileSystemAlreadyExistsException(ssp);
+		}
+	}
+
+	private WebFileSystem findFileSystem(final String ssp) {
+		WebFileSystem wfs = cache.get(ssp);
+
+		// Probe each ancestor, deepest first; roots may be registered
+		// with or without their trailing slash.
+		for (int i = ssp.lastIndexOf('/', ssp.length() - 2); wfs == null && i > 0; i = ssp.lastIndexOf('/', i - 1)) {
+			wfs = cache.get(ssp.substring(0, i + 1));
+			if (wfs == null) wfs = cache.get(ssp.substring(0, i));
+		}
 
-		cache.put(ssp, wfs = new WebFileSystem(this, uri));
 		return wfs;
 	}
 
-	synchronized void ridFileSystem(final URI uri) {
+	void ridFileSystem(final URI uri) {
 		mapFileSystem(uri, 3);
 		cache.remove(uri.getRawSchemeSpecificPart());
 	}
 
 	@Override
-	public synchronized WebFileSystem getFileSystem(final URI uri) {
+	public WebFileSystem getFileSystem(final URI uri) {
 		return mapFileSystem(uri, 1);
 	}
 
 	@Override
-	public synchronized WebFileSystem newFileSystem(
+	public WebFileSystem newFileSystem(
 		final URI uri,
-		final Map<String, ?> env // ignored
+		final Map<String, ?> env
 	) throws IOException {
-		return mapFileSystem(uri, 0);
+		return mapFileSystem(uri, 0, env);
 	}
 
 	@Override
-	public synchronized Path getPath(final URI uri) { // directory
+	public Path getPath(final URI uri) { // directory
 		WebFileSystem wfs = getFileSystem(uri);
 
-		if (wfs == null) {
+		while (wfs == null) {
 			try {
 				wfs = newFileSystem(uri, null);
-			} catch (IOException e) {
+			} catch (final FileSystemAlreadyExistsException e) {
+				wfs = getFileSystem(uri); // lost the race
+			} catch (final IOException e) {
 				throw new FileSystemNotFoundException(e.getMessage());
 			}
 		}
@@ -124,12 +137,12 @@ public final class WebFileSystemProvider extends FileSystemProvider implements G
 	@Override
 	public DirectoryStream<Path> newDirectoryStream(
 		final Path path,
-		final DirectoryStream.Filter<? super Path> filter // ignored
+		final DirectoryStream.Filter<? super Path> filter
 	) throws IOException {
 		final WebFilePath wfp = (WebFilePath)path;
 		final WebFileSystem wfs = wfp.getFileSystem();
 
-		return wfs.list(wfp);
+		return wfs.list(wfp, filter);
 	}
 
 	@Override
@@ -149,7 +162,14 @@ public final class WebFileSystemProvider extends FileSystemProvider implements G
 		final Set<? extends OpenOption> opts,
 		final FileAttribute<?>... atts
 	) throws IOException {
-		throw new NotYetBoundException();
+		if (opts.contains(StandardOpenOption.WRITE) || opts.contains(StandardOpenOption.APPEND)) {
+			throw new ReadOnlyFileSystemException();
+		}
+
+		final WebFilePath wfp = (WebFilePath)path;
+		final WebFileSystem wfs = wfp.getFileSystem();
+
+		return wfs.seek(wfp);
 	}
 
 	@Override
@@ -182,7 +202,7 @@ public final class WebFileSystemProvider extends FileSystemProvider implements G
 		final String atts,
 		final LinkOption... opts
 	) throws IOException {
-		return readAttributes(path, WebFileAttributes.class).toMap();
+		return readAttributes(path, WebFileAttributes.class).toMap(atts);
 	}
 
 	//
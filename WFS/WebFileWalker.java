@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class WebFileWalker implements Iterator<Path>, AutoCloseable {
+
+	private static final Object DONE = new Object();
+
+	// Listings only go out while the consumer keeps the feed below LOW,
+	// at most AHEAD at a time, so an abandoned walk soon stops by itself
+	private static final int LOW = 1024;
+	private static final int AHEAD = 64;
+
+	private final WebFileSystem fact;
+	private final Executor pool;
+	private final WebFilePathRules pick;
+
+	private final BlockingQueue<Object> feed = new LinkedBlockingQueue<>();
+	private final AtomicInteger todo = new AtomicInteger();
+	private final Deque<Step> wait = new ArrayDeque<>();
+	private int busy;
+	private volatile boolean shut;
+	private Object head;
+
+	WebFileWalker(
+		final WebFileSystem fact,
+		final Executor pool,
+		final WebFilePath start,
+		final int depth,
+		final WebFilePathRules pick
+	) {
+		this.fact = fact;
+		this.pool = pool;
+		this.pick = pick;
+
+		if (pick == null || pick.matches(start)) {
+			feed.add(start);
+		}
+
+		todo.incrementAndGet();
+
+		if (depth > 0 && start.getMemoAtts().isDirectory() && (pick == null || !pick.prunes(start))) {
+			submit(start, depth);
+		}
+
+		finish();
+	}
+
+	private void submit(final WebFilePath node, final int left) {
+		todo.incrementAndGet();
+
+		synchronized (wait) {
+			wait.addLast(new Step(node, left));
+		}
+
+		pump();
+	}
+
+	private void pump() {
+		while (true) {
+			final Step step;
+
+			synchronized (wait) {
+				if (shut || busy >= AHEAD || feed.size() >= LOW || wait.isEmpty()) {
+					return;
+				}
+
+				step = wait.pollFirst();
+				busy++;
+			}
+
+			launch(step);
+		}
+	}
+
+	private void launch(final Step step) {
+		try {
+			pool.execute(() -> {
+				try {
+					if (!shut) visit(step.node, step.left);
+				} catch (final IOException e) {
+					feed.add(new UncheckedIOException(e));
+				} catch (final RuntimeException e) {
+					feed.add(e);
+				} finally {
+					done();
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			feed.add(e);
+			done();
+		}
+	}
+
+	private void done() {
+		synchronized (wait) {
+			busy--;
+		}
+
+		finish();
+		pump();
+	}
+
+	private void visit(final WebFilePath node, final int left) throws IOException {
+		try (final WebFilePaths kids = fact.list(node)) {
+			while (!shut && kids.hasNext()) {
+				final WebFilePath kid = (WebFilePath)kids.next();
+
+				if (pick == null || pick.matches(kid)) {
+					feed.add(kid);
+				}
+
+				// Siblings fan out, each subtree lists on its own thread once there is demand
+				if (left > 1 && kid.getMemoAtts().isDirectory() && (pick == null || !pick.prunes(kid))) {
+					submit(kid, left - 1);
+				}
+			}
+		}
+	}
+
+	private void finish() {
+		if (todo.decrementAndGet() == 0) {
+			feed.add(DONE);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (head == null) {
+			if (feed.size() < LOW) {
+				pump();
+			}
+
+			try {
+				head = feed.take();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+
+		if (head instanceof RuntimeException) {
+			close();
+			throw (RuntimeException)head;
+		}
+
+		return head != DONE;
+	}
+
+	@Override
+	public Path next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Path path = (Path)head;
+		head = null;
+		return path;
+	}
+
+	@Override
+	public void close() {
+		shut = true;
+	}
+
+	private static final class Step {
+
+		final WebFilePath node;
+		final int left;
+
+		Step(final WebFilePath node, final int left) {
+			this.node = node;
+			this.left = left;
+		}
+
+	}
+
+}
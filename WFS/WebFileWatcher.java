@@ -0,0 +1,333 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.Watchable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class WebFileWatcher implements WatchService {
+
+	private static final AtomicInteger TICK = new AtomicInteger();
+	private static final int ROOM = 512;
+
+	private final WebFileSystem fact;
+	private final long least;
+	private final long most;
+
+	private final Map<WebFilePath, Key> keys = new ConcurrentHashMap<>();
+	private final BlockingQueue<Key> feed = new LinkedBlockingQueue<>();
+	private final ScheduledExecutorService tick;
+	private final Key shut = new Key(null);
+	private volatile boolean done;
+
+	WebFileWatcher(
+		final WebFileSystem fact,
+		final long least
+	) {
+		this.fact = fact;
+		this.least = least;
+		this.most = least * 32;
+		this.tick = Executors.newSingleThreadScheduledExecutor(task -> {
+			final Thread t = new Thread(task, "webfs-watch-" + TICK.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	WatchKey register(
+		final WebFilePath node,
+		final WatchEvent.Kind<?>[] evts,
+		final WatchEvent.Modifier... mods
+	) throws IOException {
+		if (done) {
+			throw new ClosedWatchServiceException();
+		}
+
+		if (mods.length > 0) {
+			throw new UnsupportedOperationException(mods[0].name());
+		}
+
+		final Set<WatchEvent.Kind<?>> kinds = new HashSet<>(Arrays.asList(evts));
+		final Key prev = keys.get(node);
+
+		if (prev != null && prev.isValid()) {
+			prev.kinds = kinds;
+			return prev;
+		}
+
+		// The first listing is the baseline, only later changes are events
+		final Key key = new Key(node);
+		key.kinds = kinds;
+		key.look();
+		keys.put(node, key);
+		key.plan(least);
+		return key;
+	}
+
+	@Override
+	public void close() {
+		if (done) {
+			return;
+		}
+
+		done = true;
+		tick.shutdownNow();
+
+		for (final Key key : keys.values()) {
+			key.cancel();
+		}
+
+		feed.clear();
+		feed.add(shut);
+	}
+
+	@Override
+	public WatchKey poll() {
+		return check(feed.poll());
+	}
+
+	@Override
+	public WatchKey poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return check(feed.poll(timeout, unit));
+	}
+
+	@Override
+	public WatchKey take() throws InterruptedException {
+		return check(feed.take());
+	}
+
+	private WatchKey check(final Key key) {
+		if (key == shut || done) {
+			feed.offer(shut);
+			throw new ClosedWatchServiceException();
+		}
+
+		return key;
+	}
+
+	final class Key implements WatchKey {
+
+		private final WebFilePath node;
+		private volatile Set<WatchEvent.Kind<?>> kinds;
+		private volatile boolean valid = true;
+
+		private final List<WatchEvent<?>> evts = new ArrayList<>();
+		private boolean ready = true;
+
+		private Map<String, WebFilePath> last = new HashMap<>();
+		private WebFileClient.Body seen;
+		private long span;
+		private ScheduledFuture<?> next;
+
+		Key(final WebFilePath node) {
+			this.node = node;
+		}
+
+		private void plan(final long wait) {
+			span = wait;
+
+			try {
+				next = tick.schedule(this::poll, span, TimeUnit.MILLISECONDS);
+			} catch (final RejectedExecutionException e) {
+				valid = false;
+			}
+		}
+
+		// Quiet directories are polled less and less often, any change resets the pace
+		private void poll() {
+			if (!valid) {
+				return;
+			}
+
+			final boolean same;
+
+			try {
+				same = !look();
+			} catch (final IOException | RuntimeException e) {
+				cancel();
+				signal();
+				return;
+			}
+
+			plan(same ? Math.min(most, span * 2) : least);
+		}
+
+		// True if the listing changed, unchanged listings cost a 304 and no parsing
+		private boolean look() throws IOException {
+			final WebFileClient.Body body = fact.poll(node, seen);
+
+			if (body == seen) {
+				return false;
+			}
+
+			final Map<String, WebFilePath> now = new HashMap<>();
+
+			try (final WebFilePaths kids = fact.list(node, body)) {
+				while (kids.hasNext()) {
+					final WebFilePath kid = (WebFilePath)kids.next();
+					now.put(kid.getFileName().toString(), kid);
+				}
+			}
+
+			if (seen != null) {
+				for (final Map.Entry<String, WebFilePath> kid : now.entrySet()) {
+					final WebFilePath was = last.get(kid.getKey());
+
+					if (was == null) {
+						emit(StandardWatchEventKinds.ENTRY_CREATE, kid.getValue());
+					} else if (differs(was.getMemoAtts(), kid.getValue().getMemoAtts())) {
+						emit(StandardWatchEventKinds.ENTRY_MODIFY, kid.getValue());
+					}
+				}
+
+				for (final Map.Entry<String, WebFilePath> kid : last.entrySet()) {
+					if (!now.containsKey(kid.getKey())) {
+						emit(StandardWatchEventKinds.ENTRY_DELETE, kid.getValue());
+					}
+				}
+			}
+
+			seen = body;
+			last = now;
+			return true;
+		}
+
+		private boolean differs(final WebFileAttributes was, final WebFileAttributes now) {
+			return was.isDirectory() != now.isDirectory()
+				|| was.size() != now.size()
+				|| !was.lastModifiedTime().equals(now.lastModifiedTime());
+		}
+
+		private void emit(final WatchEvent.Kind<Path> kind, final WebFilePath kid) {
+			if (!kinds.contains(kind)) {
+				return;
+			}
+
+			synchronized (this) {
+				if (evts.size() >= ROOM) {
+					evts.clear();
+					evts.add(new Event<>(StandardWatchEventKinds.OVERFLOW, null));
+				} else if (evts.isEmpty() || evts.get(0).kind() != StandardWatchEventKinds.OVERFLOW) {
+					evts.add(new Event<Path>(kind, kid.getFileName()));
+				}
+			}
+
+			signal();
+		}
+
+		private synchronized void signal() {
+			if (ready) {
+				ready = false;
+				feed.offer(this);
+			}
+		}
+
+		@Override
+		public boolean isValid() {
+			return valid;
+		}
+
+		@Override
+		public synchronized List<WatchEvent<?>> pollEvents() {
+			final List<WatchEvent<?>> out = new ArrayList<>(evts);
+			evts.clear();
+			return out;
+		}
+
+		@Override
+		public synchronized boolean reset() {
+			if (!valid) {
+				return false;
+			}
+
+			if (!ready && !evts.isEmpty()) {
+				feed.offer(this);
+			} else {
+				ready = true;
+			}
+
+			return true;
+		}
+
+		@Override
+		public void cancel() {
+			valid = false;
+			keys.remove(node, this);
+
+			if (next != null) {
+				next.cancel(false);
+			}
+		}
+
+		@Override
+		public Watchable watchable() {
+			return node;
+		}
+
+	}
+
+	static final class Event<T> implements WatchEvent<T> {
+
+		private final WatchEvent.Kind<T> kind;
+		private final T context;
+
+		Event(final WatchEvent.Kind<T> kind, final T context) {
+			this.kind = kind;
+			this.context = context;
+		}
+
+		@Override public WatchEvent.Kind<T> kind() { return kind; }
+		@Override public int count() { return 1; }
+		@Override public T context() { return context; }
+
+		@Override
+		public String toString() {
+			return kind.name() + " " + context;
+		}
+
+	}
+
+}
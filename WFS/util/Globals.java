@@ -53,4 +53,16 @@ public interface Globals {
 		return Janitor.toPattern(tbd);
 	}
 
+	default long second(final CharSequence text, final int from, final int till) {
+		return Janitor.toEpochSecond(text, from, till);
+	}
+
+	default int fraction(final CharSequence text, final int from, final int till) {
+		return Janitor.toNanoOfSecond(text, from, till);
+	}
+
+	default long extent(final CharSequence text, final int from, final int till) {
+		return Janitor.toExtent(text, from, till);
+	}
+
 }
@@ -23,14 +23,25 @@
  */
 package WFS.util;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.spi.FileSystemProvider;
+import java.time.Instant;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -48,6 +59,51 @@ public final class Janitor {
 
 	private Janitor() {}
 
+	private static final class Myriapod {
+
+		static final Map<String, String> options = load();
+
+		private static Map<String, String> load() {
+			final Map<String, String> opts = new HashMap<>();
+
+			// Home first, the working directory overrides
+			for (final String dir : new String[] { "user.home", "user.dir" }) {
+				final Path file = Path.of(System.getProperty(dir, "."), ".myriapod");
+
+				if (Files.isRegularFile(file)) {
+					final Properties props = new Properties();
+
+					try (final Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+						props.load(in);
+					} catch (final IOException e) {
+						continue;
+					}
+
+					for (final String key : props.stringPropertyNames()) {
+						opts.put(key, props.getProperty(key).trim());
+					}
+				}
+			}
+
+			return Collections.unmodifiableMap(opts);
+		}
+
+	}
+
+	public static Map<String, String> toOptions(final Map<String, ?> env) {
+		final Map<String, String> opts = new HashMap<>(Myriapod.options);
+
+		if (env != null) {
+			for (final Map.Entry<String, ?> entry : env.entrySet()) {
+				if (entry.getValue() != null) {
+					opts.put(entry.getKey(), entry.getValue().toString().trim());
+				}
+			}
+		}
+
+		return opts;
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <P extends Path> P toAbsPath(final String path) {
 		// We cannot distinguish between URI-style paths and 'disk' paths
@@ -82,7 +138,7 @@ public final class Janitor {
 		final boolean self = elem.isEmpty() || elem.equals(".");
 		final boolean bsep = base.endsWith("/");
 		final boolean esep = elem.endsWith("/");
-		final StringBuilder path = new StringBuilder(256)
+		final StringBuilder path = new StringBuilder(base.length() + elem.length() + 2)
 			.append(base)
 			.append(bsep ? "" : "/")
 			.append(self ? "" : elem)
@@ -95,6 +151,148 @@ public final class Janitor {
 		return path.toString();
 	}
 
+	public static long toEpochSecond(final CharSequence text, final int from, final int till) {
+		// yyyy-MM-ddTHH:mm:ss[.fffffffff](Z|+HH:MM|-HH:MM), else the slow path
+		if (isStamp(text, from, till)) {
+			final int year = digits(text, from, 4);
+			final int mon = digits(text, from + 5, 2);
+			final int day = digits(text, from + 8, 2);
+			final int hour = digits(text, from + 11, 2);
+			final int min = digits(text, from + 14, 2);
+			final int sec = digits(text, from + 17, 2);
+
+			int i = from + 19;
+			int nano = 0;
+
+			if (i < till && text.charAt(i) == '.') {
+				int k = 0;
+				while (++i < till && k < 9 && isDigit(text.charAt(i))) k++;
+				if (k == 0) nano = -1;
+			}
+
+			int zone = Integer.MIN_VALUE;
+
+			if (i + 1 == till && (text.charAt(i) | 0x20) == 'z') {
+				zone = 0;
+			} else if (i + 6 == till && text.charAt(i + 3) == ':'
+					&& (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+				final int zh = digits(text, i + 1, 2);
+				final int zm = digits(text, i + 4, 2);
+
+				if (zh >= 0 && zh <= 18 && zm >= 0 && zm < 60) {
+					zone = (zh * 3600 + zm * 60) * (text.charAt(i) == '-' ? -1 : 1);
+				}
+			}
+
+			if (year >= 0 && mon >= 1 && mon <= 12 && day >= 1 && day <= days(year, mon)
+					&& hour >= 0 && hour < 24 && min >= 0 && min < 60
+					&& sec >= 0 && sec < 60 && nano >= 0 && zone != Integer.MIN_VALUE) {
+				return epochDay(year, mon, day) * 86400L
+					+ hour * 3600 + min * 60 + sec - zone;
+			}
+		}
+
+		return Instant.parse(text.subSequence(from, till)).getEpochSecond();
+	}
+
+	public static int toNanoOfSecond(final CharSequence text, final int from, final int till) {
+		if (isStamp(text, from, till)) {
+			int i = from + 19;
+			int nano = 0;
+
+			if (i < till && text.charAt(i) == '.') {
+				int k = 0;
+				while (++i < till && k < 9 && isDigit(text.charAt(i))) {
+					nano = nano * 10 + text.charAt(i) - '0'; k++;
+				}
+				for (; k < 9; k++) nano *= 10;
+			}
+
+			// Malformed stamps are left for toEpochSecond to reject
+			return nano;
+		}
+
+		return Instant.parse(text.subSequence(from, till)).getNano();
+	}
+
+	private static boolean isStamp(final CharSequence text, final int from, final int till) {
+		return till - from >= 20 && text.charAt(from + 4) == '-' && text.charAt(from + 7) == '-'
+			&& (text.charAt(from + 10) | 0x20) == 't'
+			&& text.charAt(from + 13) == ':' && text.charAt(from + 16) == ':';
+	}
+
+	public static long toExtent(final CharSequence text, final int from, final int till) {
+		if (till - from == 1 && text.charAt(from) == '-') {
+			return -1;
+		}
+
+		// Unsigned, at most 18 digits cannot overflow
+		if (till - from <= 18) {
+			long size = 0;
+
+			for (int i = from; i < till; i++) {
+				final char c = text.charAt(i);
+				if (!isDigit(c)) return Long.parseUnsignedLong(text.subSequence(from, till).toString());
+				size = size * 10 + c - '0';
+			}
+
+			return size;
+		}
+
+		return Long.parseUnsignedLong(text.subSequence(from, till).toString());
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int digits(final CharSequence text, final int from, final int count) {
+		int value = 0;
+
+		for (int i = from; i < from + count; i++) {
+			final char c = text.charAt(i);
+			if (!isDigit(c)) return -1;
+			value = value * 10 + c - '0';
+		}
+
+		return value;
+	}
+
+	private static int days(final int year, final int mon) {
+		if (mon == 2) {
+			return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+		}
+
+		return 30 + ((mon + (mon >> 3)) & 1);
+	}
+
+	private static long epochDay(int year, final int mon, final int day) {
+		// Proleptic Gregorian, after H. Hinnant's days_from_civil
+		year -= mon <= 2 ? 1 : 0;
+		final long era = Math.floorDiv(year, 400);
+		final long yoe = year - era * 400;
+		final long doy = (153 * (mon + (mon > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	// InputStream.skipNBytes, which only arrived with Java 12
+	public static InputStream toOffset(final InputStream in, long from) throws IOException {
+		while (from > 0) {
+			final long hop = in.skip(from);
+
+			if (hop > 0) {
+				from -= hop;
+			} else if (in.read() < 0) {
+				throw new EOFException();
+			} else {
+				from--;
+			}
+		}
+
+		return in;
+	}
+
 	public static Pattern toPattern(final String tbd) {
 		final int mid = tbd.indexOf(':') + 1;
 		String type = tbd.substring(0, mid);
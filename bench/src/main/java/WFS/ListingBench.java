@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WFS.util.StandIn;
+
+// One listing body parsed into paths: the index-based parser against the
+// split / trim / Instant.parse lambda it replaced, kept here as the baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBench {
+
+	@Param({ "100000" })
+	public int lines;
+
+	@Param({ "false", "true" })
+	public String rawListingLines;
+
+	private StandIn stub;
+	private WebFileSystem fact;
+	private WebFilePath root;
+	private WebFileClient.Body body;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		// Only hosts the root, the listing itself never leaves memory
+		stub = new StandIn.Builder().setSyntheticTree("0", "1", "1", "1").start();
+
+		final Map<String, String> env = new HashMap<>();
+		env.put("rawListingLines", rawListingLines);
+		fact = (WebFileSystem)new WebFileSystemProvider().newFileSystem(stub.getRoot(), env);
+		root = (WebFilePath)fact.getRootDirectories().iterator().next();
+
+		final StringBuilder text = new StringBuilder(lines * 64).append(".\t2024-01-01T00:00:00Z\t-\n");
+
+		for (int i = 0; i < lines; i++) {
+			text.append(i % 10 == 0 ? "dir-" : "file-").append(i).append(i % 10 == 0 ? "" : ".bin").append('\t')
+				.append("2024-").append(String.format("%02d-%02dT%02d:%02d:%02d", 1 + i % 12, 1 + i % 28, i % 24, i % 60, i % 59))
+				.append(i % 3 == 0 ? ".123456789Z" : "Z").append('\t')
+				.append(i % 10 == 0 ? "-" : Integer.toString(i * 37)).append('\n');
+		}
+
+		body = new WebFileClient.Body(text.toString().getBytes(StandardCharsets.UTF_8), null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		fact.close();
+		stub.close();
+	}
+
+	@Benchmark
+	public void indexed(final Blackhole hole) throws Exception {
+		try (final WebFilePaths kids = fact.list(root, body)) {
+			while (kids.hasNext()) hole.consume(kids.next());
+		}
+	}
+
+	// Reads, stores and builds paths as indexed does; only the field parsing differs
+	@Benchmark
+	public void split(final Blackhole hole) throws Exception {
+		try (final WebFileLines rows = new WebFileLines(new ByteArrayInputStream(body.data), Boolean.parseBoolean(rawListingLines))) {
+			WebFileColumns cols = new WebFileColumns(WebFileColumns.ROOM);
+			rows.next();
+
+			while (rows.hasNext()) {
+				final String[] args = rows.next().toString().split("\\t", -1);
+
+				for (int i = 0; i < args.length; i++) args[i] = args[i].trim();
+
+				if (args.length != 3 || args[0].isEmpty()) {
+					throw new ArrayStoreException();
+				}
+
+				final Instant time = args[1].isEmpty() ? Instant.EPOCH : Instant.parse(args[1]);
+				final long size = args[2].isEmpty() || "-".equals(args[2]) ? -1 : Long.parseUnsignedLong(args[2]);
+				final boolean file = size >= 0;
+
+				if (cols.isFull()) {
+					cols = new WebFileColumns(WebFileColumns.ROOM);
+				}
+
+				hole.consume(new WebFilePath(fact, root, args[0],
+					cols.add(file, size, time.getEpochSecond(), time.getNano())));
+			}
+		}
+	}
+
+}
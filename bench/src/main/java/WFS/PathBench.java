@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WFS.util.Janitor;
+import WFS.util.StandIn;
+
+// Path arithmetic and matching over the paths of a small stand-in tree
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathBench {
+
+	private StandIn stub;
+	private WebFileSystem fact;
+	private List<Path> paths;
+	private Path left;
+	private Path right;
+	private Path twin;
+	private URI base;
+	private PathMatcher glob;
+	private PathMatcher rex;
+	private WebFilePathRules rules;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		stub = new StandIn.Builder().setSyntheticTree("2", "8", "8", "16").start();
+
+		// A listing TTL of 0 yields fresh path objects on every walk, for equals
+		final Map<String, String> env = new HashMap<>();
+		env.put("listingTtlMS", "0");
+		fact = (WebFileSystem)new WebFileSystemProvider().newFileSystem(stub.getRoot(), env);
+
+		paths = walk();
+		final List<Path> again = walk();
+		final int mid = paths.size() / 2;
+
+		left = paths.get(mid);
+		right = paths.get(mid + 1);
+		twin = again.get(again.indexOf(left));
+		base = left.getParent().toUri();
+
+		glob = fact.getPathMatcher("glob:**/d[1-3]/**/f?.bin");
+		rex = fact.getPathMatcher("regex:.*/d[1-3]/.*/f.\\.bin");
+
+		final List<String> spec = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			spec.add((i % 3 == 0 ? "-" : "+") + "glob:**/d" + i + "/**/f" + (i % 8) + ".bin");
+		}
+
+		rules = fact.getPathRules(spec.toArray(new String[0]));
+	}
+
+	private List<Path> walk() throws Exception {
+		try (final Stream<Path> walk = Files.walk(fact.getRootDirectories().iterator().next())) {
+			return walk.collect(Collectors.toList());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		fact.close();
+		stub.close();
+	}
+
+	@Benchmark
+	public Object toPattern() {
+		return Janitor.toPattern("glob:**/d[1-3]/{a,b}*/f?.bin");
+	}
+
+	@Benchmark
+	public URI toSubPath() {
+		return Janitor.toSubPath(base, "f1.bin", true);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		return left.compareTo(right);
+	}
+
+	@Benchmark
+	public boolean equalsTwin() {
+		return left.equals(twin);
+	}
+
+	@Benchmark
+	public void globMatch(final Blackhole hole) {
+		for (final Path path : paths) hole.consume(glob.matches(path));
+	}
+
+	@Benchmark
+	public void regexMatch(final Blackhole hole) {
+		for (final Path path : paths) hole.consume(rex.matches(path));
+	}
+
+	@Benchmark
+	public void rulesFind(final Blackhole hole) {
+		for (final Path path : paths) hole.consume(rules.find(path));
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WFS.util.StandIn;
+
+// End to end: every walk lists the whole generated tree over HTTP
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Small listings otherwise sit out Nagle's delay on every exchange with the stand-in
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class WalkBench {
+
+	@Param({ "false", "true" })
+	public String rawListingLines;
+
+	private StandIn stub;
+	private WebFileSystem fact;
+	private Path root;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		stub = new StandIn.Builder().setSyntheticTree("3", "6", "20", "64").start();
+
+		final Map<String, String> env = new HashMap<>();
+		env.put("listingTtlMS", "0");
+		env.put("rawListingLines", rawListingLines);
+		fact = (WebFileSystem)new WebFileSystemProvider().newFileSystem(stub.getRoot(), env);
+		root = fact.getRootDirectories().iterator().next();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		fact.close();
+		stub.close();
+	}
+
+	@Benchmark
+	public long parallelWalk() {
+		try (final Stream<Path> walk = fact.walk(root)) {
+			return walk.count();
+		}
+	}
+
+	@Benchmark
+	public long filesWalk() throws Exception {
+		try (final Stream<Path> walk = Files.walk(root)) {
+			return walk.count();
+		}
+	}
+
+}
@@ -0,0 +1,448 @@
+/*
+ * MIT License
+ *
+ * Copyright (C) 2024-2025 Harry Shungo Pereboom (github.com/hspereboom)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package WFS.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// In-process stand-in for an Arachnid server: a trailing slash asks for a
+// listing (ETag validated), anything else for the raw content (Range honoured).
+public final class StandIn implements AutoCloseable {
+
+	private final HttpServer http;
+	private final ExecutorService pool;
+	private final Tree tree;
+	private final int delay;
+	private final int jitter;
+	private final long rate;
+
+	private StandIn(
+		final Tree tree,
+		final int delay,
+		final int jitter,
+		final long rate
+	) throws IOException {
+		this.tree = tree;
+		this.delay = delay;
+		this.jitter = jitter;
+		this.rate = rate;
+
+		this.pool = Executors.newCachedThreadPool(task -> {
+			final Thread t = new Thread(task, "webfs-standin");
+			t.setDaemon(true);
+			return t;
+		});
+
+		this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.http.createContext("/", this::handle);
+		this.http.setExecutor(pool);
+		this.http.start();
+	}
+
+	public URI getRoot() {
+		final InetSocketAddress at = http.getAddress();
+		return URI.create("webfs:/http://" + at.getHostString() + ':' + at.getPort() + '/');
+	}
+
+	@Override
+	public void close() {
+		http.stop(0);
+		pool.shutdownNow();
+	}
+
+	private void handle(final HttpExchange ex) throws IOException {
+		try {
+			stall();
+
+			final String path = ex.getRequestURI().getPath().substring(1);
+			final boolean list = path.isEmpty() || path.endsWith("/");
+			final String node = list && !path.isEmpty() ? path.substring(0, path.length() - 1) : path;
+
+			if (!tree.exists(node)) {
+				ex.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			if (list) {
+				final StringBuilder text = new StringBuilder(256);
+				line(text, ".", node);
+
+				if (tree.isDir(node)) {
+					for (final String kid : tree.list(node)) {
+						line(text, kid, node.isEmpty() ? kid : node + '/' + kid);
+					}
+				}
+
+				final byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+				final String etag = '"' + Integer.toHexString(Arrays.hashCode(body)) + '"';
+				ex.getResponseHeaders().set("ETag", etag);
+
+				if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+					ex.sendResponseHeaders(304, -1);
+					return;
+				}
+
+				final byte[] wire = zip(ex, body);
+				ex.sendResponseHeaders(200, wire.length == 0 ? -1 : wire.length);
+				send(ex.getResponseBody(), new ByteArrayInputStream(wire), wire.length);
+				return;
+			}
+
+			if (tree.isDir(node)) {
+				ex.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			final long size = tree.size(node);
+			long from = 0;
+			long till = size;
+
+			final String range = ex.getRequestHeaders().getFirst("Range");
+
+			if (range != null && range.startsWith("bytes=")) {
+				final int dash = range.indexOf('-');
+				final String head = dash < 0 ? "" : range.substring(6, dash).trim();
+				final String tail = dash < 0 ? "" : range.substring(dash + 1).trim();
+
+				try {
+					if (head.isEmpty()) {
+						// Suffix range: the last N bytes
+						from = Math.max(0, size - Long.parseLong(tail));
+					} else {
+						from = Long.parseLong(head);
+						till = tail.isEmpty() ? size : Math.min(size, Long.parseLong(tail) + 1);
+					}
+				} catch (final NumberFormatException e) {
+					from = till; // unparsable, answered below like an unsatisfiable one
+				}
+
+				if (from >= till) {
+					ex.getResponseHeaders().set("Content-Range", "bytes */" + size);
+					ex.sendResponseHeaders(416, -1);
+					return;
+				}
+
+				ex.getResponseHeaders().set("Content-Range", "bytes " + from + '-' + (till - 1) + '/' + size);
+			}
+
+			ex.sendResponseHeaders(range == null ? 200 : 206, till - from == 0 ? -1 : till - from);
+
+			try (final InputStream in = tree.open(node, from)) {
+				send(ex.getResponseBody(), in, till - from);
+			}
+		} catch (final RuntimeException e) {
+			throw new IOException(e);
+		} finally {
+			ex.close();
+		}
+	}
+
+	private static byte[] zip(final HttpExchange ex, final byte[] body) throws IOException {
+		final String codecs = ex.getRequestHeaders().getFirst("Accept-Encoding");
+
+		if (body.length < 256 || codecs == null || !codecs.contains("gzip")) {
+			return body;
+		}
+
+		final ByteArrayOutputStream pack = new ByteArrayOutputStream(body.length / 4);
+
+		try (final GZIPOutputStream out = new GZIPOutputStream(pack)) {
+			out.write(body);
+		}
+
+		ex.getResponseHeaders().set("Content-Encoding", "gzip");
+		return pack.toByteArray();
+	}
+
+	private void line(final StringBuilder text, final String name, final String node) throws IOException {
+		text.append(name).append('\t')
+			.append(tree.time(node)).append('\t')
+			.append(tree.isDir(node) ? "-" : Long.toString(tree.size(node))).append('\n');
+	}
+
+	private void stall() {
+		final int wait = delay + (jitter > 0 ? ThreadLocalRandom.current().nextInt(jitter + 1) : 0);
+
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void send(final OutputStream out, final InputStream in, final long count) throws IOException {
+		final byte[] buff = new byte[(int)Math.max(512, Math.min(16384, rate > 0 ? rate / 20 : 16384))];
+		final long born = System.nanoTime();
+		long sent = 0;
+
+		while (sent < count) {
+			final int n = in.read(buff, 0, (int)Math.min(buff.length, count - sent));
+			if (n < 0) break;
+			out.write(buff, 0, n);
+			sent += n;
+
+			// Bandwidth cap: sleep until the bytes sent are due
+			if (rate > 0) {
+				final long due = sent * 1_000_000_000L / rate - (System.nanoTime() - born);
+
+				if (due > 1_000_000L) {
+					try {
+						Thread.sleep(due / 1_000_000L);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	//
+
+	private interface Tree {
+		boolean exists(String node) throws IOException;
+		boolean isDir(String node) throws IOException;
+		long size(String node) throws IOException;
+		Instant time(String node) throws IOException;
+		List<String> list(String node) throws IOException;
+		InputStream open(String node, long from) throws IOException;
+	}
+
+	private static final class Disk implements Tree {
+
+		private final Path base;
+
+		Disk(final Path base) {
+			this.base = base;
+		}
+
+		private Path at(final String node) {
+			final Path path = base.resolve(node).normalize();
+
+			if (!path.startsWith(base)) {
+				throw new IllegalArgumentException(node);
+			}
+
+			return path;
+		}
+
+		@Override public boolean exists(final String node) { return Files.exists(at(node)); }
+		@Override public boolean isDir(final String node) { return Files.isDirectory(at(node)); }
+		@Override public long size(final String node) throws IOException { return Files.size(at(node)); }
+
+		@Override
+		public Instant time(final String node) throws IOException {
+			return Files.readAttributes(at(node), BasicFileAttributes.class).lastModifiedTime().toInstant();
+		}
+
+		@Override
+		public List<String> list(final String node) throws IOException {
+			final List<String> kids = new ArrayList<>();
+
+			try (final DirectoryStream<Path> ds = Files.newDirectoryStream(at(node))) {
+				for (final Path kid : ds) kids.add(kid.getFileName().toString());
+			}
+
+			return kids;
+		}
+
+		@Override
+		public InputStream open(final String node, final long from) throws IOException {
+			return Janitor.toOffset(Files.newInputStream(at(node)), from);
+		}
+
+	}
+
+	// Directories d0..dN, files f0.bin..fN.bin, content derived from the name
+	private static final class Fake implements Tree {
+
+		private final int depth;
+		private final int fanout;
+		private final int files;
+		private final long bulk;
+		private final Instant time = Instant.parse("2024-01-01T00:00:00Z");
+
+		Fake(final int depth, final int fanout, final int files, final long bulk) {
+			this.depth = depth;
+			this.fanout = fanout;
+			this.files = files;
+			this.bulk = bulk;
+		}
+
+		// -1 missing, 0 directory, 1 file
+		private int kind(final String node) {
+			if (node.isEmpty()) {
+				return 0;
+			}
+
+			final String[] elems = node.split("/", -1);
+
+			for (int i = 0; i < elems.length; i++) {
+				final String e = elems[i];
+				final boolean last = i == elems.length - 1;
+
+				if (e.startsWith("d") && i < depth && index(e, 1, e.length()) < fanout) {
+					continue;
+				}
+
+				if (last && e.startsWith("f") && e.endsWith(".bin") && index(e, 1, e.length() - 4) < files) {
+					return 1;
+				}
+
+				return -1;
+			}
+
+			return 0;
+		}
+
+		private static int index(final String e, final int from, final int till) {
+			try {
+				return from < till ? Integer.parseInt(e.substring(from, till)) : Integer.MAX_VALUE;
+			} catch (final NumberFormatException x) {
+				return Integer.MAX_VALUE;
+			}
+		}
+
+		@Override public boolean exists(final String node) { return kind(node) >= 0; }
+		@Override public boolean isDir(final String node) { return kind(node) == 0; }
+		@Override public long size(final String node) { return bulk; }
+		@Override public Instant time(final String node) { return time; }
+
+		@Override
+		public List<String> list(final String node) {
+			final int level = node.isEmpty() ? 0 : node.split("/").length;
+			final List<String> kids = new ArrayList<>();
+
+			if (level < depth) {
+				for (int i = 0; i < fanout; i++) kids.add("d" + i);
+			}
+
+			for (int i = 0; i < files; i++) kids.add("f" + i + ".bin");
+			return kids;
+		}
+
+		@Override
+		public InputStream open(final String node, final long from) {
+			final int seed = node.hashCode();
+
+			return new InputStream() {
+				private long tell = from;
+
+				@Override
+				public int read() {
+					return tell < bulk ? (int)((tell++ * 31 + seed) & 0xff) : -1;
+				}
+
+				@Override
+				public int read(final byte[] b, final int off, final int len) {
+					if (tell >= bulk) return -1;
+					final int n = (int)Math.min(len, bulk - tell);
+					for (int i = 0; i < n; i++) b[off + i] = (byte)((tell++ * 31 + seed) & 0xff);
+					return n;
+				}
+			};
+		}
+
+	}
+
+	//
+
+	public static final class Builder {
+
+		private Path base = null;
+		private String depth = null;
+		private String fanout = null;
+		private String files = null;
+		private String bulk = null;
+		private String latencyMS = null;
+		private String jitterMS = null;
+		private String bytesPerSec = null;
+
+		public Builder setDirectory(final Path base) {
+			this.base = base;
+			return this;
+		}
+
+		public Builder setSyntheticTree(final String depth, final String fanout, final String files, final String fileSize) {
+			this.depth = depth;
+			this.fanout = fanout;
+			this.files = files;
+			this.bulk = fileSize;
+			return this;
+		}
+
+		public Builder setLatencyMillis(final String latencyMS, final String jitterMS) {
+			this.latencyMS = latencyMS;
+			this.jitterMS = jitterMS;
+			return this;
+		}
+
+		public Builder setBandwidth(final String bytesPerSec) {
+			this.bytesPerSec = bytesPerSec;
+			return this;
+		}
+
+		public StandIn start() throws IOException {
+			final Tree tree = base != null
+				? new Disk(base.toAbsolutePath().normalize())
+				: new Fake(
+					Integer.parseInt(Objects.toString(depth, "3")),
+					Integer.parseInt(Objects.toString(fanout, "10")),
+					Integer.parseInt(Objects.toString(files, "10")),
+					Long.parseLong(Objects.toString(bulk, "4096")));
+
+			return new StandIn(tree,
+				Math.max(0, Integer.parseInt(Objects.toString(latencyMS, "0"))),
+				Math.max(0, Integer.parseInt(Objects.toString(jitterMS, "0"))),
+				Math.max(0, Long.parseLong(Objects.toString(bytesPerSec, "0"))));
+		}
+
+	}
+
+}